@@ -0,0 +1,364 @@
+package com.mbalem.demo_spring_rev_jpa.busca;
+
+import com.mbalem.demo_spring_rev_jpa.dao.AutorAlteradoEvent;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// 🔹 Índice invertido de trigramas (sequências de 3 caracteres) sobre o nome e
+// o sobrenome dos autores, mantido em memória.
+//
+// Uma busca "like '%termo%'" não usa índice no MySQL (o curinga inicial
+// impede), então cada busca varria a tabela inteira. Aqui, todo autor que
+// contém "termo" contém também todos os trigramas de "termo"; a interseção das
+// listas de ids desses trigramas dá um conjunto pequeno de candidatos, que o
+// AutorDao confere no banco pela chave primária.
+//
+// O índice é desta instância da aplicação: é atualizado pelos eventos de
+// escrita do AutorDao (após o commit) e reconstruído na inicialização ou via
+// POST /autores/nomeOrSobrenome/reindexar. A reconstrução monta um índice
+// novo, ao lado do que está em uso, e só então o troca: as buscas feitas
+// durante ela continuam usando o índice anterior, completo.
+//
+// Autores gravados por outras instâncias não chegam aqui pelos eventos. Por
+// isso cada instância soma, a cada "intervalo-verificacao", as suas escritas
+// que mudam nomes na sua linha de contadores ("busca@<instância>", ver
+// InicializadorIndiceBusca) e lê a soma das linhas das outras. Se essa soma
+// mudou desde a última reconstrução, uma nova é iniciada em segundo plano (no
+// máximo uma a cada "intervalo-reconstrucao"). Nada disso passa pelas buscas:
+// uma escrita de outra instância aparece na busca desta depois de, no máximo,
+// uma verificação de cada uma, o intervalo de reconstrução e a própria
+// reconstrução. Instâncias de versões que não contam as escritas não são
+// detectadas.
+@Component
+public class IndiceTrigramas {
+
+  // Termos menores que isso não têm trigramas: a busca usa a consulta normal.
+  private static final int TAMANHO_TRIGRAMA = 3;
+
+  // 🔹 Início do nome das linhas de contadores com as escritas de cada
+  // instância (seguido do identificador da instância).
+  public static final String PREFIXO_CONTADOR = "busca@";
+
+  // Tamanho da coluna "nome" de contadores
+  private static final int TAMANHO_CONTADOR = 45;
+
+  // Índice usado nas buscas
+  private volatile Conteudo atual = new Conteudo();
+
+  // Índice sendo montado por uma reconstrução (null fora dela). Recebe as
+  // linhas lidas e também os eventos de escrita, e ao final substitui "atual".
+  private volatile Conteudo novo;
+
+  // Até a primeira reconstrução concluída o índice está vazio e não é usado
+  private volatile boolean pronto = false;
+
+  // 🔹 Linha de contadores com as escritas desta instância. O identificador
+  // é o mesmo a cada inicialização (autores.busca.instancia, ou o nome da
+  // máquina): a instância volta a usar a sua linha em vez de criar outra.
+  private final String contadorEscritas;
+
+  // Escritas desta instância que mudam nomes ainda não somadas à sua linha
+  private final AtomicLong escritasPendentes = new AtomicLong();
+
+  // Soma das escritas das outras instâncias lida no início da última
+  // reconstrução concluída
+  private volatile long escritasExternas;
+
+  private final long intervaloReconstrucaoNanos;
+
+  private volatile long ultimaReconstrucaoNanos = System.nanoTime();
+
+  // Inicia uma reconstrução em segundo plano (ver InicializadorIndiceBusca)
+  private volatile Runnable reconstrucao = () -> {
+  };
+
+  public IndiceTrigramas(
+      @Value("${autores.busca.intervalo-reconstrucao:1m}") Duration intervaloReconstrucao,
+      @Value("${autores.busca.instancia:}") String instancia) {
+    this.intervaloReconstrucaoNanos = intervaloReconstrucao.toNanos();
+    this.contadorEscritas = contador(instancia.isBlank() ? nomeDaMaquina() : instancia.strip());
+  }
+
+  private record Documento(String nome, String sobrenome) {
+  }
+
+  // 🔹 Ids candidatos para o termo, ou vazio (Optional.empty) quando o índice
+  // não pode responder: termo curto demais, termo com curingas do LIKE ou
+  // índice ainda não construído. Nesses casos a busca deve varrer a tabela.
+  public Optional<Set<Long>> candidatos(String termo) {
+
+    if (!pronto || termo.indexOf('%') >= 0 || termo.indexOf('_') >= 0) {
+      return Optional.empty();
+    }
+
+    Set<String> trigramas = trigramas(normalizar(termo));
+    if (trigramas.isEmpty()) {
+      return Optional.empty();
+    }
+    return Optional.of(atual.candidatos(trigramas));
+  }
+
+  // 🔹 Mantém o índice em dia com as escritas do AutorDao.
+  // Só é chamado depois que a transação que gravou o autor foi confirmada.
+  // Durante uma reconstrução, a escrita vai também para o índice novo.
+  @TransactionalEventListener
+  public void aoAlterarAutor(AutorAlteradoEvent evento) {
+    // "novo" é lido antes de "atual": se a reconstrução terminar no meio, a
+    // escrita chega ao índice que ficou em uso
+    Conteudo emConstrucao = novo;
+    Conteudo emUso = atual;
+    if (evento.removido()) {
+      emUso.remover(evento.id());
+      if (emConstrucao != null) {
+        emConstrucao.remover(evento.id());
+      }
+    } else {
+      emUso.indexar(evento.id(), evento.nome(), evento.sobrenome(), true);
+      if (emConstrucao != null) {
+        emConstrucao.indexar(evento.id(), evento.nome(), evento.sobrenome(), true);
+      }
+    }
+
+    // Só a versão mudou: o índice das outras instâncias continua certo
+    if (evento.removido() || evento.nome() != null || evento.sobrenome() != null) {
+      escritasPendentes.incrementAndGet();
+    }
+  }
+
+  // 🔹 Começa uma reconstrução completa em um índice novo; o atual continua
+  // respondendo às buscas até concluirReconstrucao(true).
+  // Retorna false se já existe uma reconstrução em andamento.
+  public synchronized boolean iniciarReconstrucao() {
+    if (novo != null) {
+      return false;
+    }
+    novo = new Conteudo();
+    return true;
+  }
+
+  // 🔹 Indexa uma linha lida durante a reconstrução.
+  // Se um evento de escrita já indexou este id depois do início da
+  // reconstrução, o valor do evento é mais novo que o da leitura e é mantido.
+  // Um autor removido durante a leitura ainda pode entrar: o id vira só um
+  // candidato a mais, descartado na conferência no banco.
+  public void indexarNaReconstrucao(Long id, String nome, String sobrenome) {
+    Conteudo emConstrucao = novo;
+    if (emConstrucao != null) {
+      emConstrucao.indexar(id, nome, sobrenome, false);
+    }
+  }
+
+  // 🔹 Com sucesso, o índice novo passa a responder às buscas; sem, é
+  // descartado e o anterior continua em uso.
+  // "escritasExternas": soma das escritas das outras instâncias lida logo
+  // depois de iniciarReconstrucao(), antes da leitura dos autores.
+  public synchronized void concluirReconstrucao(boolean sucesso, long escritasExternas) {
+    if (sucesso) {
+      atual = novo;
+      this.escritasExternas = escritasExternas;
+      pronto = true;
+    }
+    novo = null;
+  }
+
+  // 🔹 Nome da linha de contadores com as escritas desta instância que mudam
+  // nomes ou removem autores.
+  public String contadorEscritas() {
+    return contadorEscritas;
+  }
+
+  // 🔹 Escritas desta instância desde a última chamada, a somar na sua linha
+  // de contadores. Se a soma falhar, voltam com devolverEscritasPendentes().
+  public long retirarEscritasPendentes() {
+    return escritasPendentes.getAndSet(0);
+  }
+
+  public void devolverEscritasPendentes(long escritas) {
+    escritasPendentes.addAndGet(escritas);
+  }
+
+  // 🔹 Compara a soma atual das escritas das outras instâncias com a lida na
+  // última reconstrução: se mudou, o índice pode não conhecer autores
+  // gravados por elas e uma reconstrução é pedida.
+  public void verificarEscritasExternas(long escritasExternas) {
+    if (pronto && escritasExternas != this.escritasExternas) {
+      solicitarReconstrucao();
+    }
+  }
+
+  public void definirReconstrucao(Runnable reconstrucao) {
+    this.reconstrucao = reconstrucao;
+  }
+
+  // Uma reconstrução por vez, e no máximo uma por intervalo: com escritas
+  // constantes de outras instâncias o índice ficaria sendo reconstruído sem
+  // parar
+  private void solicitarReconstrucao() {
+    long agora = System.nanoTime();
+    long ultima = ultimaReconstrucaoNanos;
+    if (novo != null || agora - ultima < intervaloReconstrucaoNanos) {
+      return;
+    }
+    synchronized (this) {
+      if (ultimaReconstrucaoNanos != ultima) {
+        return;
+      }
+      ultimaReconstrucaoNanos = agora;
+    }
+    reconstrucao.run();
+  }
+
+  // 🔹 Postagens e documentos de um índice completo (o em uso ou o em
+  // construção).
+  private static final class Conteudo {
+
+    // Trigrama → ids dos autores cujo nome ou sobrenome contém o trigrama
+    private final Map<String, ListaIds> postagens = new ConcurrentHashMap<>();
+
+    // Id → nome e sobrenome indexados (normalizados), para remover os
+    // trigramas antigos quando o autor muda
+    private final Map<Long, Documento> documentos = new ConcurrentHashMap<>();
+
+    private Set<Long> candidatos(Set<String> trigramas) {
+
+      ListaIds[] listas = new ListaIds[trigramas.size()];
+      int i = 0;
+      for (String trigrama : trigramas) {
+        ListaIds ids = postagens.get(trigrama);
+        if (ids == null || ids.tamanho() == 0) {
+          return Set.of();
+        }
+        listas[i++] = ids;
+      }
+      // Começa pela lista mais curta para a interseção ser a mais barata: só
+      // ela é copiada, e cada id dela é procurado nas outras
+      Arrays.sort(listas, Comparator.comparingInt(ListaIds::tamanho));
+
+      long[] resultado = listas[0].copiar();
+      int quantidade = resultado.length;
+      for (int j = 1; j < listas.length && quantidade > 0; j++) {
+        int mantidos = 0;
+        for (int k = 0; k < quantidade; k++) {
+          if (listas[j].contem(resultado[k])) {
+            resultado[mantidos++] = resultado[k];
+          }
+        }
+        quantidade = mantidos;
+      }
+
+      Set<Long> ids = new HashSet<>(Math.max(16, quantidade * 2));
+      for (int k = 0; k < quantidade; k++) {
+        ids.add(resultado[k]);
+      }
+      return ids;
+    }
+
+    private void indexar(Long id, String nome, String sobrenome, boolean substituir) {
+
+      documentos.compute(id, (chave, anterior) -> {
+        if (anterior != null && !substituir) {
+          return anterior;
+        }
+        // Alteração parcial (ou só de versão) de um autor que ainda não está no
+        // índice: sem o valor anterior não há como completar o documento. Fica
+        // para a reconstrução, que lê a linha inteira.
+        if (anterior == null && (nome == null || sobrenome == null)) {
+          return null;
+        }
+
+        // null = campo não alterado: mantém o valor já indexado
+        Documento documento = new Documento(
+            nome != null ? normalizar(nome) : anterior != null ? anterior.nome() : "",
+            sobrenome != null ? normalizar(sobrenome) : anterior != null ? anterior.sobrenome() : "");
+
+        Set<String> antigos = anterior == null ? Set.of() : trigramas(anterior);
+        Set<String> atuais = trigramas(documento);
+
+        for (String trigrama : antigos) {
+          if (!atuais.contains(trigrama)) {
+            ListaIds ids = postagens.get(trigrama);
+            if (ids != null) {
+              ids.remover(chave);
+            }
+          }
+        }
+        for (String trigrama : atuais) {
+          if (!antigos.contains(trigrama)) {
+            postagens.computeIfAbsent(trigrama, t -> new ListaIds()).adicionar(chave);
+          }
+        }
+        return documento;
+      });
+    }
+
+    private void remover(Long id) {
+      documentos.computeIfPresent(id, (chave, anterior) -> {
+        for (String trigrama : trigramas(anterior)) {
+          ListaIds ids = postagens.get(trigrama);
+          if (ids != null) {
+            ids.remover(chave);
+          }
+        }
+        return null;
+      });
+    }
+  }
+
+  // 🔹 "busca@<instância>", cortado para caber na coluna: identificadores
+  // longos ficam com o início e um hash do valor inteiro.
+  private static String contador(String instancia) {
+    String nome = PREFIXO_CONTADOR + instancia;
+    if (nome.length() <= TAMANHO_CONTADOR) {
+      return nome;
+    }
+    String hash = String.format("%08x", instancia.hashCode());
+    return nome.substring(0, TAMANHO_CONTADOR - hash.length() - 1) + "~" + hash;
+  }
+
+  private static String nomeDaMaquina() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      return "local";
+    }
+  }
+
+  // Trigramas do nome e do sobrenome, cada um gerado separadamente
+  private static Set<String> trigramas(Documento documento) {
+    Set<String> trigramas = trigramas(documento.nome());
+    trigramas.addAll(trigramas(documento.sobrenome()));
+    return trigramas;
+  }
+
+  private static Set<String> trigramas(String texto) {
+    Set<String> trigramas = new HashSet<>();
+    for (int i = 0; i + TAMANHO_TRIGRAMA <= texto.length(); i++) {
+      trigramas.add(texto.substring(i, i + TAMANHO_TRIGRAMA));
+    }
+    return trigramas;
+  }
+
+  // 🔹 Minúsculas e sem acentos, para casar com a collation do MySQL
+  // (utf8mb4_0900_ai_ci), que ignora maiúsculas e acentos no LIKE.
+  private static String normalizar(String texto) {
+    String semAcentos = Normalizer.normalize(texto, Normalizer.Form.NFD)
+        .replaceAll("\\p{M}", "");
+    return semAcentos.toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,106 @@
+package com.mbalem.demo_spring_rev_jpa.busca;
+
+import com.mbalem.demo_spring_rev_jpa.dao.AutorDao;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+// 🔹 Constrói o índice de trigramas a partir dos dados existentes quando a
+// aplicação fica pronta.
+// Roda em uma thread separada: em tabelas grandes a leitura completa demora,
+// e enquanto isso as buscas continuam funcionando pela consulta com LIKE.
+// A mesma reconstrução em segundo plano é usada pelo índice quando percebe
+// escritas de outras instâncias.
+//
+// A cada "intervalo-verificacao", soma as escritas desta instância na sua
+// linha de contadores e entrega ao índice a soma das linhas das outras
+// instâncias (ver IndiceTrigramas), fora do caminho das requisições.
+@Component
+public class InicializadorIndiceBusca implements SmartLifecycle {
+
+  private static final Logger log = LoggerFactory.getLogger(InicializadorIndiceBusca.class);
+
+  private final AutorDao dao;
+
+  private final IndiceTrigramas indice;
+
+  private final boolean habilitado;
+
+  private final Duration intervaloVerificacao;
+
+  private volatile ScheduledExecutorService verificacoes;
+
+  public InicializadorIndiceBusca(AutorDao dao, IndiceTrigramas indice,
+      @Value("${autores.busca.reconstruir-na-inicializacao:true}") boolean habilitado,
+      @Value("${autores.busca.intervalo-verificacao:5s}") Duration intervaloVerificacao) {
+    this.dao = dao;
+    this.indice = indice;
+    this.habilitado = habilitado;
+    this.intervaloVerificacao = intervaloVerificacao;
+    indice.definirReconstrucao(this::reconstruir);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void construirIndice() {
+    if (habilitado) {
+      reconstruir();
+    }
+  }
+
+  @Override
+  public void start() {
+    verificacoes = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("indice-trigramas-verificacao").daemon().factory());
+    verificacoes.scheduleWithFixedDelay(this::verificar, intervaloVerificacao.toMillis(),
+        intervaloVerificacao.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  // Ao parar, as escritas ainda não somadas vão para a linha desta instância
+  @Override
+  public void stop() {
+    ScheduledExecutorService executor = verificacoes;
+    verificacoes = null;
+    if (executor != null) {
+      executor.shutdownNow();
+      verificar();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return verificacoes != null;
+  }
+
+  private void verificar() {
+    long escritas = indice.retirarEscritasPendentes();
+    try {
+      indice.verificarEscritasExternas(dao.sincronizarEscritasBusca(escritas));
+    } catch (RuntimeException e) {
+      indice.devolverEscritasPendentes(escritas);
+      log.warn("Falha ao verificar as escritas de outras instancias no indice de trigramas", e);
+    }
+  }
+
+  private void reconstruir() {
+    Thread.ofPlatform().name("indice-trigramas").daemon().start(() -> {
+      try {
+        long indexados = dao.reconstruirIndiceBusca();
+        log.info("Indice de trigramas construido com {} autores", indexados);
+      } catch (ReconstrucaoEmAndamentoException e) {
+        // Outra reconstrução já está lendo os autores
+      } catch (RuntimeException e) {
+        log.warn("Falha ao construir o indice de trigramas; buscas seguem com o indice anterior (ou LIKE)", e);
+      }
+    });
+  }
+}
@@ -0,0 +1,60 @@
+package com.mbalem.demo_spring_rev_jpa.busca;
+
+import java.util.Arrays;
+
+// 🔹 Ids de uma postagem do índice de trigramas: um long[] ordenado, sem
+// objetos por id (um Set<Long> gastava dezenas de bytes por id em cada
+// trigrama; aqui são 8 bytes).
+//
+// Ids novos costumam ser maiores que os existentes e entram no fim; os demais
+// entram na posição certa, deslocando o restante do array. Leituras e
+// escritas de uma lista são sincronizadas nela mesma.
+final class ListaIds {
+
+  private long[] ids = new long[4];
+
+  private int tamanho;
+
+  synchronized void adicionar(long id) {
+    if (tamanho > 0 && ids[tamanho - 1] < id) {
+      garantirEspaco();
+      ids[tamanho++] = id;
+      return;
+    }
+    int posicao = Arrays.binarySearch(ids, 0, tamanho, id);
+    if (posicao >= 0) {
+      return;
+    }
+    posicao = -posicao - 1;
+    garantirEspaco();
+    System.arraycopy(ids, posicao, ids, posicao + 1, tamanho - posicao);
+    ids[posicao] = id;
+    tamanho++;
+  }
+
+  synchronized void remover(long id) {
+    int posicao = Arrays.binarySearch(ids, 0, tamanho, id);
+    if (posicao >= 0) {
+      System.arraycopy(ids, posicao + 1, ids, posicao, tamanho - posicao - 1);
+      tamanho--;
+    }
+  }
+
+  synchronized boolean contem(long id) {
+    return Arrays.binarySearch(ids, 0, tamanho, id) >= 0;
+  }
+
+  synchronized int tamanho() {
+    return tamanho;
+  }
+
+  synchronized long[] copiar() {
+    return Arrays.copyOf(ids, tamanho);
+  }
+
+  private void garantirEspaco() {
+    if (tamanho == ids.length) {
+      ids = Arrays.copyOf(ids, ids.length + (ids.length >> 1));
+    }
+  }
+}
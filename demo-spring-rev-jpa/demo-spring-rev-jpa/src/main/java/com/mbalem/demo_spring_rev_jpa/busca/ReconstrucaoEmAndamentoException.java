@@ -0,0 +1,10 @@
+package com.mbalem.demo_spring_rev_jpa.busca;
+
+// 🔹 Lançada quando se pede uma reconstrução do índice de busca enquanto outra
+// ainda está em andamento.
+public class ReconstrucaoEmAndamentoException extends RuntimeException {
+
+  public ReconstrucaoEmAndamentoException() {
+    super("Reconstrucao do indice de busca ja em andamento");
+  }
+}
@@ -0,0 +1,182 @@
+package com.mbalem.demo_spring_rev_jpa.cache;
+
+import com.mbalem.demo_spring_rev_jpa.config.ConsistenciaLeitura;
+import com.mbalem.demo_spring_rev_jpa.dao.AutorAlteradoEvent;
+import com.mbalem.demo_spring_rev_jpa.dto.AutorResumo;
+import com.mbalem.demo_spring_rev_jpa.dto.Pagina;
+import com.mbalem.demo_spring_rev_jpa.entity.Autor;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+// 🔹 Respostas JSON já serializadas (bytes UTF-8) de GET /autores/{id} e das
+// páginas de GET /autores.
+//
+// O cache de segundo nível do Hibernate evita a ida ao banco, mas cada
+// resposta ainda passava pelo Jackson, que montava o mesmo JSON de novo a cada
+// requisição. Aqui o JSON é gerado uma vez e os bytes são devolvidos como
+// estão (o Spring os copia direto para a resposta).
+//
+// Cada cache é limitado pelo total de bytes guardados e invalidado pelos
+// eventos de escrita do AutorDao (após o commit): o autor alterado sai do
+// cache de autores, e das páginas saem só as que cobrem o id alterado.
+//
+// Os eventos são só desta instância. Para que escritas feitas por outras
+// instâncias apareçam:
+// - o JSON de um autor só é devolvido se for da versão atual dele, que quem
+//   chama obtém do IndiceVersoes (válida por alguns segundos); sem ela, o
+//   autor é carregado de novo;
+// - as páginas expiram em "expiracao-paginas" (poucos segundos), o atraso
+//   máximo para elas.
+//
+// Com as leituras nas réplicas, o que foi lido de uma réplica que pode não
+// enxergar a última escrita desta instância não é guardado (ver
+// ConsistenciaLeitura.ler()).
+@Component
+public class CacheJson {
+
+  // 🔹 JSON de um autor e a versão dele (para o ETag)
+  public record AutorJson(long versao, byte[] json) {
+  }
+
+  private record ChavePagina(Long after, int limit) {
+  }
+
+  // "ultimo": maior id que a página cobre; null na última página (cobre
+  // tudo depois de "after")
+  private record PaginaJson(Long ultimo, byte[] json) {
+  }
+
+  private final Cache<Long, AutorJson> autores;
+
+  private final Cache<ChavePagina, PaginaJson> paginas;
+
+  // Incrementado a cada escrita; ver guardar()
+  private final AtomicLong geracao = new AtomicLong();
+
+  private final ObjectMapper mapper;
+
+  private final ConsistenciaLeitura consistencia;
+
+  public CacheJson(ObjectMapper mapper, ConsistenciaLeitura consistencia,
+      @Value("${autores.cache-json.tamanho-autores:32MB}") DataSize tamanhoAutores,
+      @Value("${autores.cache-json.tamanho-paginas:16MB}") DataSize tamanhoPaginas,
+      @Value("${autores.cache-json.expiracao:10m}") Duration expiracao,
+      @Value("${autores.cache-json.expiracao-paginas:2s}") Duration expiracaoPaginas) {
+    this.mapper = mapper;
+    this.consistencia = consistencia;
+    this.autores = Caffeine.newBuilder()
+        .maximumWeight(tamanhoAutores.toBytes())
+        .weigher((Long id, AutorJson autor) -> autor.json().length)
+        .expireAfterWrite(expiracao)
+        .recordStats()
+        .build();
+    this.paginas = Caffeine.newBuilder()
+        .maximumWeight(tamanhoPaginas.toBytes())
+        .weigher((ChavePagina chave, PaginaJson pagina) -> pagina.json().length)
+        .expireAfterWrite(expiracaoPaginas)
+        .recordStats()
+        .build();
+  }
+
+  // 🔹 JSON do autor na versão "versao" (a atual), do cache ou serializado a
+  // partir de "carregar". Um JSON guardado de outra versão é descartado; com
+  // IndiceVersoes.DESCONHECIDA o autor é sempre carregado. Retorna null se o
+  // autor não existe.
+  public AutorJson autor(Long id, long versao, Supplier<Autor> carregar) {
+
+    AutorJson encontrado = autores.getIfPresent(id);
+    if (encontrado != null && encontrado.versao() == versao) {
+      return encontrado;
+    }
+
+    return consistencia.ler(() -> {
+      long inicio = geracao.get();
+      Autor autor = carregar.get();
+      if (autor == null) {
+        return null;
+      }
+      AutorJson novo = new AutorJson(autor.getVersao(), serializar(autor));
+      guardar(autores, id, novo, inicio);
+      return novo;
+    });
+  }
+
+  // 🔹 JSON da página de resumos, do cache ou serializado a partir de
+  // "carregar".
+  public byte[] pagina(Long after, int limit, Supplier<Pagina<AutorResumo>> carregar) {
+
+    ChavePagina chave = new ChavePagina(after, limit);
+    PaginaJson encontrada = paginas.getIfPresent(chave);
+    if (encontrada != null) {
+      return encontrada.json();
+    }
+
+    return consistencia.ler(() -> {
+      long inicio = geracao.get();
+      Pagina<AutorResumo> pagina = carregar.get();
+      PaginaJson nova = new PaginaJson(pagina.proximoCursor(), serializar(pagina));
+      guardar(paginas, chave, nova, inicio);
+      return nova.json();
+    });
+  }
+
+  // 🔹 Tira do cache o que a escrita pode ter mudado.
+  @TransactionalEventListener
+  public void aoAlterarAutor(AutorAlteradoEvent evento) {
+    geracao.incrementAndGet();
+    autores.invalidate(evento.id());
+    if (paginas.estimatedSize() > 0) {
+      paginas.asMap().entrySet().removeIf(entrada -> cobre(entrada.getKey(), entrada.getValue(), evento.id()));
+    }
+  }
+
+  // 🔹 A página lista os ids em (after, ultimo]: só um id nesse intervalo
+  // (inserido, alterado ou removido) pode mudá-la.
+  private static boolean cobre(ChavePagina chave, PaginaJson pagina, long id) {
+    return (chave.after() == null || id > chave.after()) && (pagina.ultimo() == null || id <= pagina.ultimo());
+  }
+
+  public CacheStats estatisticasAutores() {
+    return autores.stats();
+  }
+
+  public CacheStats estatisticasPaginas() {
+    return paginas.stats();
+  }
+
+  // 🔹 Guarda o valor lido do banco, a menos que alguma escrita tenha sido
+  // confirmada durante a leitura ou que a leitura possa ter ido a uma réplica
+  // atrasada: nesses casos o valor pode estar velho.
+  // A conferência da geração é feita depois do put, para cobrir também a
+  // escrita cujo evento chega entre a conferência e o put.
+  private <K, V> void guardar(Cache<K, V> cache, K chave, V valor, long geracaoInicial) {
+    if (!consistencia.preencheCaches()) {
+      return;
+    }
+    cache.put(chave, valor);
+    if (geracao.get() != geracaoInicial) {
+      cache.invalidate(chave);
+    }
+  }
+
+  private byte[] serializar(Object valor) {
+    try {
+      return mapper.writeValueAsBytes(valor);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Falha ao serializar " + valor.getClass().getSimpleName(), e);
+    }
+  }
+}
@@ -0,0 +1,291 @@
+package com.mbalem.demo_spring_rev_jpa.cache;
+
+import com.mbalem.demo_spring_rev_jpa.dao.AutorAlteradoEvent;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// 🔹 Versão atual de cada autor (id_autor → versao), mantida em memória para
+// responder If-None-Match em GET /autores/{id} sem ir ao banco.
+//
+// É uma tabela hash de endereçamento aberto (sondagem linear) sobre
+// AtomicLongArray: um com as chaves, um com as versões, um com o instante
+// do último registro de cada versão e um com a trava de cada slot. Não há
+// objetos por entrada (como Long e Map.Entry em um HashMap<Long, Long>). As
+// leituras não travam nada: conferem se o slot não mudou enquanto liam e,
+// se mudou, respondem DESCONHECIDA. As escritas em um slot travam só ele,
+// com CAS.
+//
+// A capacidade é fixa (autores.versoes.capacidade, potência de 2). Cada id
+// fica em um dos SONDAGENS slots a partir do seu slot inicial: o primeiro
+// vazio ou cuja versão já expirou. Com todos esses ocupados por versões
+// ainda válidas, o id não é registrado e é conferido no banco. Os slots
+// nunca voltam a ficar vazios, então a procura por um id pode parar no
+// primeiro slot vazio.
+//
+// Como o índice de busca, é desta instância da aplicação: é atualizado pelos
+// eventos de escrita do AutorDao (após o commit) e pelas leituras de versão.
+// Escritas feitas por outras instâncias não chegam aqui, por isso cada
+// versão só vale por "autores.versoes.validade" depois de lida ou gravada
+// por esta instância; depois disso o id é conferido no banco de novo. Esse é
+// o tempo máximo em que um 304 pode ser respondido para uma versão já
+// alterada em outra instância. Depois de expirado, o slot (inclusive o de um
+// autor removido) pode passar a outro id; uma leitura do banco que demore
+// mais que a validade pode então registrar uma versão já superada.
+@Component
+public class IndiceVersoes {
+
+  // Devolvido por versao() quando o id não está no índice
+  public static final long DESCONHECIDA = -1;
+
+  // Valores guardados na tabela de versões: 0 = slot sem versão ainda,
+  // REMOVIDO = autor excluído, n > 0 = versão n - 1
+  private static final long VAZIO = 0;
+  private static final long REMOVIDO = -1;
+
+  // Slots examinados a partir do slot inicial de cada id
+  private static final int SONDAGENS = 32;
+
+  // Inclusões de ids novos com o mesmo slot inicial são feitas uma de cada
+  // vez: duas threads registrando o mesmo id não o colocam em dois slots
+  private static final int TRAVAS_INCLUSAO = 64;
+
+  private final AtomicLongArray chaves;
+
+  private final AtomicLongArray versoes;
+
+  // System.nanoTime() do último registro de cada slot
+  private final AtomicLongArray registros;
+
+  // Trava de cada slot: par = livre, ímpar = em alteração. Cada alteração
+  // soma 2, e as leituras comparam o valor antes e depois de ler o slot.
+  private final AtomicLongArray travas;
+
+  private final Object[] travasInclusao = new Object[TRAVAS_INCLUSAO];
+
+  private final long validadeNanos;
+
+  private final int mascara;
+
+  private final int sondagens;
+
+  public IndiceVersoes(@Value("${autores.versoes.capacidade:1048576}") int capacidade,
+      @Value("${autores.versoes.validade:2s}") Duration validade) {
+    if (capacidade <= 0 || Integer.bitCount(capacidade) != 1) {
+      throw new IllegalArgumentException("A capacidade deve ser uma potencia de 2: " + capacidade);
+    }
+    this.chaves = new AtomicLongArray(capacidade);
+    this.versoes = new AtomicLongArray(capacidade);
+    this.registros = new AtomicLongArray(capacidade);
+    this.travas = new AtomicLongArray(capacidade);
+    for (int i = 0; i < TRAVAS_INCLUSAO; i++) {
+      travasInclusao[i] = new Object();
+    }
+    this.validadeNanos = validade.toNanos();
+    this.mascara = capacidade - 1;
+    this.sondagens = Math.min(SONDAGENS, capacidade);
+  }
+
+  // 🔹 Versão conhecida do autor, ou DESCONHECIDA (não registrado, removido,
+  // registrado há mais que a validade ou sendo alterado neste instante):
+  // nesse caso quem chama deve consultar o banco.
+  public long versao(long id) {
+    if (id <= 0) {
+      return DESCONHECIDA;
+    }
+    int slot = espalhar(id) & mascara;
+    for (int i = 0; i < sondagens; i++) {
+      long chave = chaves.get(slot);
+      if (chave == 0) {
+        return DESCONHECIDA;
+      }
+      if (chave == id) {
+        long trava = travas.get(slot);
+        long valor = versoes.get(slot);
+        long registro = registros.get(slot);
+        if ((trava & 1) != 0 || chaves.get(slot) != id || travas.get(slot) != trava) {
+          return DESCONHECIDA;
+        }
+        if (valor <= VAZIO || System.nanoTime() - registro > validadeNanos) {
+          return DESCONHECIDA;
+        }
+        return valor - 1;
+      }
+      slot = (slot + 1) & mascara;
+    }
+    return DESCONHECIDA;
+  }
+
+  // 🔹 Registra uma versão lida ou gravada.
+  // A versão só avança: uma leitura antiga que chega depois de uma escrita
+  // mais nova não faz o índice voltar. Um autor removido continua removido
+  // enquanto estiver no slot.
+  // Registrar a versão que já está no índice renova a validade dela.
+  public void registrar(long id, long versao) {
+    int slot = travarSlot(id);
+    if (slot < 0) {
+      return;
+    }
+    try {
+      long novo = versao + 1;
+      long atual = versoes.get(slot);
+      if (atual != REMOVIDO && atual <= novo) {
+        versoes.set(slot, novo);
+        registros.set(slot, System.nanoTime());
+      }
+    } finally {
+      destravar(slot);
+    }
+  }
+
+  // O slot é criado mesmo que o id não esteja no índice: assim uma leitura
+  // anterior à remoção, que chegue depois dela, não registra o autor de novo.
+  public void remover(long id) {
+    int slot = travarSlot(id);
+    if (slot < 0) {
+      return;
+    }
+    try {
+      versoes.set(slot, REMOVIDO);
+      registros.set(slot, System.nanoTime());
+    } finally {
+      destravar(slot);
+    }
+  }
+
+  // 🔹 O autor foi gravado, mas a nova versão não foi lida: a registrada deixa
+  // de valer, e o índice passa a guardar a menor versão possível depois dela
+  // (já expirada). Assim versao() responde DESCONHECIDA até uma leitura do
+  // banco, e uma leitura anterior à escrita não registra a versão antiga.
+  public void desatualizar(long id) {
+    int slot = travarSlot(id);
+    if (slot < 0) {
+      return;
+    }
+    try {
+      long atual = versoes.get(slot);
+      if (atual > VAZIO) {
+        versoes.set(slot, atual + 1);
+        registros.set(slot, System.nanoTime() - validadeNanos - 1);
+      }
+    } finally {
+      destravar(slot);
+    }
+  }
+
+  // 🔹 Mantém o índice em dia com as escritas do AutorDao, depois do commit.
+  @TransactionalEventListener
+  public void aoAlterarAutor(AutorAlteradoEvent evento) {
+    if (evento.removido()) {
+      remover(evento.id());
+    } else if (evento.versao() != null) {
+      registrar(evento.id(), evento.versao());
+    } else {
+      desatualizar(evento.id());
+    }
+  }
+
+  // 🔹 Slot do id, já travado, ou -1 se não há onde registrá-lo (ou se o
+  // slot mudou de dono no meio do caminho: o registro é só descartado).
+  // Se o id não está na tabela, ocupa o primeiro slot vazio ou expirado.
+  private int travarSlot(long id) {
+    if (id <= 0) {
+      return -1;
+    }
+    int inicio = espalhar(id) & mascara;
+    int slot = procurar(id, inicio);
+    if (slot >= 0) {
+      return travarSeDoId(slot, id);
+    }
+
+    synchronized (travasInclusao[inicio & (TRAVAS_INCLUSAO - 1)]) {
+      // Outra thread pode ter incluído o id enquanto esta esperava
+      slot = procurar(id, inicio);
+      if (slot >= 0) {
+        return travarSeDoId(slot, id);
+      }
+
+      long agora = System.nanoTime();
+      slot = inicio;
+      for (int i = 0; i < sondagens; i++) {
+        long chave = chaves.get(slot);
+        if (chave == 0) {
+          travar(slot);
+          if (chaves.get(slot) != 0) {
+            destravar(slot);
+            return -1;
+          }
+          return ocupar(slot, id);
+        }
+        if (agora - registros.get(slot) > validadeNanos) {
+          travar(slot);
+          if (chaves.get(slot) != chave || agora - registros.get(slot) <= validadeNanos) {
+            destravar(slot);
+            return -1;
+          }
+          return ocupar(slot, id);
+        }
+        slot = (slot + 1) & mascara;
+      }
+      return -1;
+    }
+  }
+
+  // Slot com o id entre os que começam em "inicio", ou -1
+  private int procurar(long id, int inicio) {
+    int slot = inicio;
+    for (int i = 0; i < sondagens; i++) {
+      long chave = chaves.get(slot);
+      if (chave == id) {
+        return slot;
+      }
+      if (chave == 0) {
+        return -1;
+      }
+      slot = (slot + 1) & mascara;
+    }
+    return -1;
+  }
+
+  private int travarSeDoId(int slot, long id) {
+    travar(slot);
+    if (chaves.get(slot) == id) {
+      return slot;
+    }
+    destravar(slot);
+    return -1;
+  }
+
+  // Com o slot travado: passa a ser do id, ainda sem versão
+  private int ocupar(int slot, long id) {
+    chaves.set(slot, id);
+    versoes.set(slot, VAZIO);
+    registros.set(slot, System.nanoTime());
+    return slot;
+  }
+
+  private void travar(int slot) {
+    while (true) {
+      long trava = travas.get(slot);
+      if ((trava & 1) == 0 && travas.compareAndSet(slot, trava, trava + 1)) {
+        return;
+      }
+      Thread.onSpinWait();
+    }
+  }
+
+  private void destravar(int slot) {
+    travas.incrementAndGet(slot);
+  }
+
+  // Ids sequenciais caem em slots vizinhos; a multiplicação os espalha pela
+  // tabela e evita longas sequências de sondagem
+  private static int espalhar(long id) {
+    long h = id * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+}
@@ -0,0 +1,183 @@
+package com.mbalem.demo_spring_rev_jpa.config;
+
+import com.mbalem.demo_spring_rev_jpa.metricas.UsoConexoes;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+// 🔹 Controle de admissão ao pool de conexões no modo de threads virtuais
+// (spring.threads.virtual.enabled=true).
+//
+// Com threads virtuais o Tomcat não limita mais as requisições simultâneas a
+// ~200 threads: milhares delas podem chegar juntas ao pool do Hikari, que só
+// tem "maximum-pool-size" conexões. As que sobram ficam disputando a entrega
+// de conexões e estouram o connection-timeout com erro.
+//
+// Aqui cada pool do Hikari é envolvido por um DataSource que só pede conexão
+// ao Hikari depois de obter uma permissão de um Semaphore justo (FIFO) com uma
+// permissão a menos que o número de conexões do pool. A permissão volta
+// quando a conexão é fechada (devolvida ao pool). Uma thread virtual
+// esperando no Semaphore fica estacionada sem ocupar thread do sistema, então
+// a fila é barata; quem passa encontra uma conexão livre.
+//
+// Uma thread que já tem uma conexão aberta não pede outra permissão: a
+// geração de ids (TableGenerator, GeradorIdPorShard) abre uma segunda conexão
+// no meio da transação, e com todas as permissões ocupadas por transações
+// esperando essa segunda conexão ninguém andaria até o fim da espera. A
+// conexão que sobra no pool fica para essas conexões aninhadas.
+// A espera pela permissão não passa do connection-timeout do pool.
+//
+// Só ocupa permissão quem realmente usa o banco: respostas do CacheJson e
+// 304 do IndiceVersoes não passam por aqui.
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class AdmissaoConexoes implements BeanPostProcessor {
+
+  private final Duration esperaMaxima;
+
+  public AdmissaoConexoes(@Value("${autores.admissao.espera-maxima:30s}") Duration esperaMaxima) {
+    this.esperaMaxima = esperaMaxima;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    if (bean instanceof HikariDataSource hikari) {
+      return limitar(hikari);
+    }
+    return bean;
+  }
+
+  // 🔹 Também usado para os pools que não são beans (réplicas de leitura).
+  public DataSource limitar(HikariDataSource hikari) {
+    Duration timeoutPool = Duration.ofMillis(hikari.getConnectionTimeout());
+    return new DataSourceComAdmissao(hikari, Math.max(1, hikari.getMaximumPoolSize() - 1),
+        esperaMaxima.compareTo(timeoutPool) > 0 ? timeoutPool : esperaMaxima);
+  }
+
+  // 🔹 DataSource que limita as conexões abertas ao mesmo tempo.
+  static class DataSourceComAdmissao extends DelegatingDataSource {
+
+    private final Semaphore permissoes;
+
+    private final long esperaMaximaNanos;
+
+    // Conexões abertas por cada thread: só a primeira pede permissão
+    private final ThreadLocal<AtomicInteger> abertas = ThreadLocal.withInitial(AtomicInteger::new);
+
+    DataSourceComAdmissao(DataSource alvo, int conexoes, Duration esperaMaxima) {
+      super(alvo);
+      this.permissoes = new Semaphore(conexoes, true);
+      this.esperaMaximaNanos = esperaMaxima.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+      AtomicInteger daThread = abertas.get();
+      boolean admitida = admitir(daThread);
+      try {
+        return liberarAoFechar(super.getConnection(), daThread, admitida);
+      } catch (SQLException | RuntimeException e) {
+        liberar(daThread, admitida);
+        throw e;
+      }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+      AtomicInteger daThread = abertas.get();
+      boolean admitida = admitir(daThread);
+      try {
+        return liberarAoFechar(super.getConnection(username, password), daThread, admitida);
+      } catch (SQLException | RuntimeException e) {
+        liberar(daThread, admitida);
+        throw e;
+      }
+    }
+
+    // 🔹 Conta a conexão na thread; pede permissão (true) só se ela ainda não
+    // tem nenhuma aberta.
+    private boolean admitir(AtomicInteger daThread) throws SQLException {
+      if (daThread.get() > 0) {
+        daThread.incrementAndGet();
+        return false;
+      }
+      admitir();
+      daThread.incrementAndGet();
+      return true;
+    }
+
+    // O contador é o da thread que abriu a conexão, mesmo que outra a feche
+    private void liberar(AtomicInteger daThread, boolean admitida) {
+      daThread.decrementAndGet();
+      if (admitida) {
+        permissoes.release();
+      }
+    }
+
+    // A espera pela permissão entra na espera por conexões da requisição
+    private void admitir() throws SQLException {
+      long inicio = System.nanoTime();
+      try {
+        if (!permissoes.tryAcquire(esperaMaximaNanos, TimeUnit.NANOSECONDS)) {
+          throw new SQLTransientConnectionException(
+              "Nenhuma conexao liberada em " + Duration.ofNanos(esperaMaximaNanos));
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SQLTransientConnectionException("Interrompido esperando por uma conexao", e);
+      } finally {
+        UsoConexoes.esperou(System.nanoTime() - inicio);
+      }
+    }
+
+    // 🔹 Devolve a permissão quando a conexão é fechada (uma única vez, mesmo
+    // que close() seja chamado de novo).
+    private Connection liberarAoFechar(Connection conexao, AtomicInteger daThread, boolean admitida) {
+      AtomicBoolean fechada = new AtomicBoolean();
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+          new Class<?>[] { Connection.class }, (proxy, metodo, argumentos) -> {
+            switch (metodo.getName()) {
+              case "equals":
+                return proxy == argumentos[0];
+              case "hashCode":
+                return System.identityHashCode(proxy);
+              default:
+                break;
+            }
+            if (metodo.getName().equals("close") && fechada.compareAndSet(false, true)) {
+              try {
+                return metodo.invoke(conexao, argumentos);
+              } catch (InvocationTargetException e) {
+                throw e.getCause();
+              } finally {
+                liberar(daThread, admitida);
+              }
+            }
+            try {
+              return metodo.invoke(conexao, argumentos);
+            } catch (InvocationTargetException e) {
+              throw e.getCause();
+            }
+          });
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.mbalem.demo_spring_rev_jpa.config;
+
+import com.mbalem.demo_spring_rev_jpa.dao.AutorAlteradoEvent;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+// 🔹 Grava no primário o batimento desta instância (tabela "batimentos") e
+// entrega o token de consistência das escritas.
+//
+// Depois de cada escrita confirmada, o token vai no cabeçalho X-Consistencia
+// da resposta (quando a escrita foi feita em uma requisição) e um batimento
+// novo é agendado: assim que ele chega a uma réplica, ela passa a atender as
+// leituras que exigem aquela escrita. Várias escritas seguidas dividem o
+// mesmo batimento. Fora isso, há um batimento a cada "intervalo".
+@Component
+@ConditionalOnProperty(name = "autores.datasource.roteamento.habilitado", havingValue = "true")
+public class BatimentoReplicacao implements SmartLifecycle {
+
+  private static final Logger log = LoggerFactory.getLogger(BatimentoReplicacao.class);
+
+  // Linhas de instâncias que não batem há mais que isso são apagadas ao subir
+  private static final Duration RETENCAO = Duration.ofDays(1);
+
+  private final JdbcTemplate jdbc;
+
+  private final ConsistenciaLeitura consistencia;
+
+  private final Duration intervalo;
+
+  private final AtomicBoolean pendente = new AtomicBoolean();
+
+  private volatile ScheduledExecutorService batimentos;
+
+  public BatimentoReplicacao(JdbcTemplate jdbc, ConsistenciaLeitura consistencia,
+      @Value("${autores.datasource.replicas.batimento:1s}") Duration intervalo) {
+    this.jdbc = jdbc;
+    this.consistencia = consistencia;
+    this.intervalo = intervalo;
+  }
+
+  @Override
+  public void start() {
+    long agora = consistencia.agora();
+    jdbc.update("delete from batimentos where instante < ?", agora - RETENCAO.toNanos() / 1_000);
+    jdbc.update("insert into batimentos (instancia, instante) values (?, ?)", consistencia.instancia(), agora);
+
+    batimentos = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("batimento-replicacao").daemon().factory());
+    batimentos.scheduleWithFixedDelay(this::bater, intervalo.toMillis(), intervalo.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void stop() {
+    ScheduledExecutorService executor = batimentos;
+    batimentos = null;
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return batimentos != null;
+  }
+
+  @TransactionalEventListener
+  public void aoAlterarAutor(AutorAlteradoEvent evento) {
+    ConsistenciaLeitura.Token token = consistencia.registrarEscrita();
+
+    if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes atributos
+        && atributos.getResponse() != null) {
+      atributos.getResponse().setHeader(ConsistenciaLeitura.CABECALHO, token.toString());
+    }
+
+    ScheduledExecutorService executor = batimentos;
+    if (executor != null && pendente.compareAndSet(false, true)) {
+      executor.execute(this::bater);
+    }
+  }
+
+  // O relógio é lido depois de "pendente" voltar a false: uma escrita
+  // registrada antes disso fica coberta por este batimento, e uma registrada
+  // depois agenda o próximo.
+  private void bater() {
+    pendente.set(false);
+    try {
+      jdbc.update("update batimentos set instante = ? where instancia = ?", consistencia.agora(),
+          consistencia.instancia());
+    } catch (RuntimeException e) {
+      log.warn("Falha ao gravar o batimento de replicacao", e);
+    }
+  }
+}
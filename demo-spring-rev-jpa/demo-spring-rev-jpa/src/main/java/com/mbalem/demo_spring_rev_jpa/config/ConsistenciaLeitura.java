@@ -0,0 +1,195 @@
+package com.mbalem.demo_spring_rev_jpa.config;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+// 🔹 Tokens de consistência para ler as próprias escritas nas réplicas.
+//
+// Cada escrita confirmada devolve ao cliente, no cabeçalho X-Consistencia, um
+// token "instancia:instante": o relógio desta instância logo depois do
+// commit. Uma leitura que envia o token só vai para uma réplica que já
+// enxerga um batimento (tabela "batimentos") dessa instância com instante
+// maior; se nenhuma enxerga, vai para o primário.
+//
+// Sem token, a leitura pode ir a qualquer réplica disponível. Os caches
+// locais (segundo nível do Hibernate, CacheJson, IndiceVersoes) são
+// esvaziados nas escritas desta instância e não podem ser preenchidos de novo
+// por uma réplica atrasada: as leituras que os preenchem rodam em ler(), que
+// só as deixa preencher os caches se alguma réplica já enxerga a última
+// escrita desta instância ("ultimaEscrita"); a conexão delas vai então para
+// uma réplica assim. Se nenhuma enxerga, a leitura vai a qualquer réplica e o
+// que ela lê não é guardado (preencheCaches() = false).
+//
+// O relógio de cada instância só avança (microssegundos, estritamente
+// crescente), e tokens só são comparados com batimentos da mesma instância:
+// a diferença entre os relógios das máquinas não importa.
+@Component
+public class ConsistenciaLeitura {
+
+  public static final String CABECALHO = "X-Consistencia";
+
+  public record Token(String instancia, long instante) {
+
+    // 🔹 Lê o valor do cabeçalho; null se não estiver no formato instancia:instante.
+    public static Token ler(String valor) {
+      if (valor == null) {
+        return null;
+      }
+      int separador = valor.lastIndexOf(':');
+      if (separador <= 0) {
+        return null;
+      }
+      try {
+        return new Token(valor.substring(0, separador).trim(), Long.parseLong(valor.substring(separador + 1).trim()));
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+
+    @Override
+    public String toString() {
+      return instancia + ":" + instante;
+    }
+  }
+
+  private final String instancia = UUID.randomUUID().toString();
+
+  private final AtomicLong relogio = new AtomicLong();
+
+  private final AtomicLong ultimaEscrita = new AtomicLong();
+
+  // Token enviado pelo cliente na requisição atual (FiltroConsistencia)
+  private final ThreadLocal<Token> exigido = new ThreadLocal<>();
+
+  // Leitura em ler() na thread atual: instante que a conexão dela precisa
+  // enxergar para que o resultado vá para os caches, ou SEM_CACHES
+  private final ThreadLocal<Long> leitura = new ThreadLocal<>();
+
+  private static final long SEM_CACHES = -1;
+
+  // Maior batimento desta instância que uma réplica disponível já enxerga,
+  // informado pelo ReplicasDataSource. Sem réplicas, as leituras vão ao
+  // primário, que enxerga tudo.
+  private volatile LongSupplier alcanceReplicas = () -> Long.MAX_VALUE;
+
+  public String instancia() {
+    return instancia;
+  }
+
+  // 🔹 Instante da última escrita confirmada por esta instância (0 = nenhuma).
+  public long ultimaEscrita() {
+    return ultimaEscrita.get();
+  }
+
+  // 🔹 Token que a leitura atual precisa enxergar, ou null.
+  public Token exigido() {
+    return exigido.get();
+  }
+
+  // 🔹 Faz as leituras da thread atual exigirem "token" (null: nenhum) até o
+  // close(), que devolve o token anterior. Usado pelo FiltroConsistencia e
+  // para levar o token da requisição a outra thread, como a da exportação em
+  // streaming.
+  public Exigencia exigir(Token token) {
+    Token anterior = exigido.get();
+    exigido.set(token);
+    return new Exigencia(anterior);
+  }
+
+  public final class Exigencia implements AutoCloseable {
+
+    private final Token anterior;
+
+    private Exigencia(Token anterior) {
+      this.anterior = anterior;
+    }
+
+    @Override
+    public void close() {
+      if (anterior == null) {
+        exigido.remove();
+      } else {
+        exigido.set(anterior);
+      }
+    }
+  }
+
+  // 🔹 Executa uma leitura cujo resultado pode ir para os caches locais. Se
+  // alguma réplica já enxerga a última escrita desta instância, a conexão da
+  // leitura vai para uma delas e preencheCaches() é true; senão, a leitura
+  // pode ir a uma réplica atrasada e preencheCaches() é false. Dentro de
+  // outra ler(), vale a decisão da mais externa.
+  public <T> T ler(Supplier<T> tarefa) {
+    if (leitura.get() != null) {
+      return tarefa.get();
+    }
+    long ultima = ultimaEscrita.get();
+    return executar(ultima == 0 || alcanceReplicas.getAsLong() > ultima ? ultima : SEM_CACHES, tarefa);
+  }
+
+  // 🔹 Como ler(), mas sempre exigindo a última escrita desta instância, nem
+  // que a leitura tenha que ir ao primário. Para leituras raras que alimentam
+  // estruturas sem expiração, como a reconstrução do índice de busca.
+  public <T> T lerAtualizado(Supplier<T> tarefa) {
+    return executar(ultimaEscrita.get(), tarefa);
+  }
+
+  private <T> T executar(long minimo, Supplier<T> tarefa) {
+    Long anterior = leitura.get();
+    leitura.set(minimo);
+    try {
+      return tarefa.get();
+    } finally {
+      if (anterior == null) {
+        leitura.remove();
+      } else {
+        leitura.set(anterior);
+      }
+    }
+  }
+
+  // 🔹 Dentro de ler(): se o que a leitura atual carrega pode ir para os
+  // caches locais. Fora dela, false.
+  public boolean preencheCaches() {
+    Long minimo = leitura.get();
+    return minimo != null && minimo != SEM_CACHES;
+  }
+
+  // Instante que a conexão da leitura atual precisa enxergar por causa dos
+  // caches (0 = nenhum)
+  long minimoDaLeitura() {
+    Long minimo = leitura.get();
+    return minimo == null || minimo == SEM_CACHES ? 0 : minimo;
+  }
+
+  void definirAlcanceReplicas(LongSupplier alcance) {
+    this.alcanceReplicas = alcance;
+  }
+
+  // 🔹 Chamado depois do commit de uma escrita: devolve o token dela.
+  public Token registrarEscrita() {
+    long instante = agora();
+    ultimaEscrita.accumulateAndGet(instante, Math::max);
+    return new Token(instancia, instante);
+  }
+
+  // 🔹 Token que cobre todas as escritas desta instância até agora, ou null
+  // se ainda não houve nenhuma.
+  public Token tokenAtual() {
+    long instante = ultimaEscrita.get();
+    return instante == 0 ? null : new Token(instancia, instante);
+  }
+
+  // 🔹 Relógio da instância em microssegundos, estritamente crescente: um
+  // batimento lido depois de um token sempre tem instante maior que o dele.
+  public long agora() {
+    Instant agora = Instant.now();
+    long micros = agora.getEpochSecond() * 1_000_000 + agora.getNano() / 1_000;
+    return relogio.accumulateAndGet(micros, (anterior, atual) -> Math.max(anterior + 1, atual));
+  }
+}
@@ -0,0 +1,37 @@
+package com.mbalem.demo_spring_rev_jpa.config;
+
+import com.mbalem.demo_spring_rev_jpa.shard.ContextoShard;
+
+import java.io.Closeable;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+// 🔹 Entrega a conexão do pool do shard definido para a thread
+// (ContextoShard). Sem shard definido, usa o shard 0.
+public class DataSourceShards extends AbstractRoutingDataSource implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(DataSourceShards.class);
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    return ContextoShard.atual();
+  }
+
+  // Os pools dos shards não são beans: são fechados junto com este DataSource
+  @Override
+  public void close() {
+    for (DataSource shard : getResolvedDataSources().values()) {
+      try {
+        if (shard.isWrapperFor(Closeable.class)) {
+          shard.unwrap(Closeable.class).close();
+        }
+      } catch (Exception e) {
+        log.warn("Falha ao fechar o pool de um shard", e);
+      }
+    }
+  }
+}
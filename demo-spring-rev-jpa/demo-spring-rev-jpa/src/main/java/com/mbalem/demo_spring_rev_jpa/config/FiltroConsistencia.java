@@ -0,0 +1,39 @@
+package com.mbalem.demo_spring_rev_jpa.config;
+
+import java.io.IOException;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+// 🔹 Guarda o token do cabeçalho X-Consistencia enquanto a requisição é
+// atendida, para o ReplicasDataSource escolher uma réplica que já o alcançou.
+// Um valor fora do formato é ignorado (a leitura não exige nada).
+@Component
+@ConditionalOnProperty(name = "autores.datasource.roteamento.habilitado", havingValue = "true")
+public class FiltroConsistencia extends OncePerRequestFilter {
+
+  private final ConsistenciaLeitura consistencia;
+
+  public FiltroConsistencia(ConsistenciaLeitura consistencia) {
+    this.consistencia = consistencia;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    ConsistenciaLeitura.Token token = ConsistenciaLeitura.Token.ler(request.getHeader(ConsistenciaLeitura.CABECALHO));
+    if (token == null) {
+      chain.doFilter(request, response);
+      return;
+    }
+    try (ConsistenciaLeitura.Exigencia exigencia = consistencia.exigir(token)) {
+      chain.doFilter(request, response);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.mbalem.demo_spring_rev_jpa.config;
+
+import com.mbalem.demo_spring_rev_jpa.busca.IndiceTrigramas;
+import com.mbalem.demo_spring_rev_jpa.entity.Contador;
+import com.mbalem.demo_spring_rev_jpa.shard.Shards;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// 🔹 Cria as linhas do contador de autores, caso ainda não existam (primeira
+// execução com o contador): a primeira faixa com a contagem atual da tabela e
+// as demais com zero (ver Contador).
+// A partir daí o AutorDao mantém o valor a cada inserção e remoção, na mesma
+// transação, e o count(1) não é mais executado.
+//
+// Roda antes de o servidor web aceitar requisições. Em uma implantação com
+// várias instâncias, inserções feitas por instâncias antigas (sem contador)
+// durante a troca de versão não são contadas; nesse caso basta apagar as
+// linhas de "contadores" e reiniciar para recontar.
+//
+// Com shards, cada shard conta os seus autores; o total é a soma.
+//
+// Também cria, com zero e só no shard 0, a linha em que esta instância conta
+// as escritas que o índice de trigramas das outras instâncias não recebe (ver
+// IndiceTrigramas). O nome da linha é o mesmo a cada inicialização da
+// instância, então ela só é criada na primeira.
+@Component
+public class InicializacaoContadores implements SmartInitializingSingleton {
+
+  private final JdbcTemplate jdbc;
+
+  private final Shards shards;
+
+  private final IndiceTrigramas indiceBusca;
+
+  public InicializacaoContadores(JdbcTemplate jdbc, Shards shards, IndiceTrigramas indiceBusca) {
+    this.jdbc = jdbc;
+    this.shards = shards;
+    this.indiceBusca = indiceBusca;
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    shards.emCada(shard -> {
+      // A contagem fica em uma subconsulta: um "select ?, count(1) from
+      // autores where ..." sempre devolve uma linha (agregação sem group by),
+      // mesmo com o "not exists" falso, e a inserção repetida falharia
+      jdbc.update("""
+          insert into contadores (nome, valor)
+          select ?, (select count(1) from autores) from dual
+          where not exists (select 1 from contadores where nome = ?)
+          """, Contador.AUTORES, Contador.AUTORES);
+
+      for (String faixa : Contador.faixas(Contador.AUTORES).subList(1, Contador.FAIXAS)) {
+        jdbc.update("""
+            insert into contadores (nome, valor)
+            select ?, 0 from contadores
+            where nome = ? and not exists (select 1 from contadores where nome = ?)
+            """, faixa, Contador.AUTORES, faixa);
+      }
+
+      if (shard == 0) {
+        jdbc.update("""
+            insert into contadores (nome, valor)
+            select ?, 0 from dual
+            where not exists (select 1 from contadores where nome = ?)
+            """, indiceBusca.contadorEscritas(), indiceBusca.contadorEscritas());
+      }
+    });
+  }
+}
@@ -0,0 +1,56 @@
+package com.mbalem.demo_spring_rev_jpa.config;
+
+import com.mbalem.demo_spring_rev_jpa.controller.AutorController;
+import com.mbalem.demo_spring_rev_jpa.dao.AutorDao;
+import com.mbalem.demo_spring_rev_jpa.metricas.MetricasMetodos;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+// 🔹 Latência, chamadas, erros e linhas de cada método público de AutorDao e
+// AutorController (autores.metricas.habilitado=true), expostos em
+// GET /metricas.
+//
+// A medição é um Advisor do Spring AOP: o mesmo mecanismo que aplica o
+// @Transactional cria um proxy dessas classes e passa cada chamada pelo
+// MetricasMetodos. Os beans são de infraestrutura (ROLE_INFRASTRUCTURE) para
+// serem considerados pelo criador de proxies mesmo sem o AspectJ.
+//
+// O Advisor tem a maior precedência: a latência inclui os outros interceptors
+// (por exemplo, a tradução de exceções do @Repository).
+@Configuration(proxyBeanMethods = false)
+@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+@ConditionalOnProperty(name = "autores.metricas.habilitado", havingValue = "true", matchIfMissing = true)
+public class InstrumentacaoMetodos {
+
+  @Bean
+  @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+  static MetricasMetodos metricasMetodos(
+      @Value("${autores.metricas.latencia-maxima:60s}") Duration latenciaMaxima) {
+    return new MetricasMetodos(latenciaMaxima, AutorDao.class, AutorController.class);
+  }
+
+  @Bean
+  @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+  static Advisor medicaoMetodos(MetricasMetodos metricas) {
+    DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(new StaticMethodMatcherPointcut() {
+      @Override
+      public boolean matches(Method metodo, Class<?> classe) {
+        return metricas.mede(metodo);
+      }
+    }, metricas);
+    advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+    return advisor;
+  }
+}
@@ -0,0 +1,78 @@
+package com.mbalem.demo_spring_rev_jpa.config;
+
+import com.mbalem.demo_spring_rev_jpa.shard.Shards;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// 🔹 Migração dos ids de auto_increment para os geradores em bloco.
+//
+// Autor e InfoAutor passaram a obter ids da tabela "id_geradores" (um bloco
+// de 1000 ids por vez, por instância). Em bancos que já têm dados gerados por
+// auto_increment, o gerador começaria em 1 e colidiria com as linhas
+// existentes. Por isso, na inicialização (antes de o servidor web aceitar
+// requisições), cada sequência é avançada para depois do maior id já gravado.
+//
+// A operação é idempotente: usa "greatest", então rodar de novo (ou várias
+// instâncias ao mesmo tempo) nunca faz a sequência voltar.
+//
+// Implantação gradual: enquanto houver instâncias da versão anterior no ar,
+// elas continuam inserindo com auto_increment, a partir do maior id. Por
+// isso, quando a sequência ainda não existe (a primeira instância nova), ela
+// começa "reserva-migracao" ids depois do maior id: esse intervalo fica para
+// as instâncias antigas. Se elas puderem inserir mais autores que isso até
+// serem todas trocadas, aumente a reserva ou troque todas as instâncias de
+// uma vez.
+//
+// Com shards, os blocos de todos os shards saem da tabela id_geradores do
+// shard 0 (ver GeradorIdPorShard): a sequência é avançada para depois do
+// maior id de todos os shards, desconsiderando os bits do número do shard.
+@Component
+public class MigracaoIdentificadores implements SmartInitializingSingleton {
+
+  private final JdbcTemplate jdbc;
+
+  private final Shards shards;
+
+  private final long reserva;
+
+  public MigracaoIdentificadores(JdbcTemplate jdbc, Shards shards,
+      @Value("${autores.ids.reserva-migracao:1000000}") long reserva) {
+    this.jdbc = jdbc;
+    this.shards = shards;
+    this.reserva = reserva;
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    sincronizar("autores", "autores", "id_autor");
+    sincronizar("info_autores", "info_autores", "id_info");
+  }
+
+  // 🔹 Garante que a linha da sequência exista (criada depois da reserva para
+  // as instâncias antigas) e que o próximo valor seja maior que o maior id
+  // da tabela.
+  // Com o otimizador "pooled-lo", "proximo_valor" é o primeiro id do próximo
+  // bloco a ser reservado.
+  private void sincronizar(String sequencia, String tabela, String colunaId) {
+
+    long[] maior = new long[1];
+    shards.emCada(shard -> maior[0] = Math.max(maior[0], jdbc.queryForObject(
+        "select coalesce(mod(max(%s), ?), 0) from %s".formatted(colunaId, tabela),
+        Long.class, 1L << Shards.BITS_SEQUENCIA)));
+
+    jdbc.update("""
+        insert into id_geradores (nome_sequencia, proximo_valor)
+        select ?, ? from dual
+        where not exists (select 1 from id_geradores where nome_sequencia = ?)
+        """, sequencia, maior[0] + 1 + reserva, sequencia);
+
+    jdbc.update("""
+        update id_geradores
+        set proximo_valor = greatest(proximo_valor, ?)
+        where nome_sequencia = ?
+        """, maior[0] + 1, sequencia);
+  }
+}
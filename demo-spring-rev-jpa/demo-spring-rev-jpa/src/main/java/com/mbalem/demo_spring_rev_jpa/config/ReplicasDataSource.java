@@ -0,0 +1,269 @@
+package com.mbalem.demo_spring_rev_jpa.config;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+// 🔹 DataSource das leituras: entrega conexões de um conjunto de réplicas.
+//
+// A cada getConnection() uma réplica é escolhida:
+// - ROUND_ROBIN: uma de cada vez, em rodízio;
+// - MENOR_LATENCIA: a de menor latência medida (média móvel de um ping
+//   periódico, Connection.isValid).
+// O ping também serve de verificação de saúde: uma réplica que falha (no ping
+// ou ao entregar uma conexão) sai da escolha até o próximo ping bem-sucedido.
+// Sem nenhuma réplica disponível, as leituras vão para o primário.
+//
+// Consistência (ConsistenciaLeitura): a réplica também precisa já enxergar o
+// token da requisição, se houver, e, numa leitura que vai preencher os caches
+// locais, a última escrita desta instância. O ping guarda até onde cada
+// réplica enxerga os batimentos desta instância; quando isso não basta, a
+// réplica escolhida é consultada na hora, e se ainda não alcançou a escrita a
+// leitura vai para o primário. Sem token e fora dessas leituras, qualquer
+// réplica disponível serve.
+// Com intervaloMedicao = 0 não há ping: a latência não é medida e uma réplica
+// que falhou não volta mais.
+public class ReplicasDataSource extends AbstractDataSource implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(ReplicasDataSource.class);
+
+  public enum Selecao {
+    ROUND_ROBIN, MENOR_LATENCIA
+  }
+
+  // Latência de uma réplica fora do ar
+  private static final long INDISPONIVEL = Long.MAX_VALUE;
+
+  // Peso da medição mais recente na média móvel (1/4)
+  private static final int PESO_MEDICAO = 4;
+
+  private final List<DataSource> replicas;
+
+  private final DataSource primario;
+
+  private final Selecao selecao;
+
+  private final ConsistenciaLeitura consistencia;
+
+  // Latência média de cada réplica, em nanossegundos (0 = ainda não medida)
+  private final AtomicLongArray latencias;
+
+  // Último batimento desta instância visto em cada réplica
+  private final AtomicLongArray posicoes;
+
+  private final AtomicInteger proxima = new AtomicInteger();
+
+  private final ScheduledExecutorService medicao;
+
+  public ReplicasDataSource(List<DataSource> replicas, DataSource primario, Selecao selecao,
+      ConsistenciaLeitura consistencia, Duration intervaloMedicao) {
+    if (replicas.isEmpty()) {
+      throw new IllegalArgumentException("Informe ao menos uma replica");
+    }
+    this.replicas = List.copyOf(replicas);
+    this.primario = primario;
+    this.selecao = selecao;
+    this.consistencia = consistencia;
+    this.latencias = new AtomicLongArray(replicas.size());
+    this.posicoes = new AtomicLongArray(replicas.size());
+
+    if (intervaloMedicao.isZero()) {
+      this.medicao = null;
+    } else {
+      this.medicao = Executors.newSingleThreadScheduledExecutor(
+          Thread.ofPlatform().name("medicao-replicas").daemon().factory());
+      this.medicao.scheduleWithFixedDelay(this::medir, 0, intervaloMedicao.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    consistencia.definirAlcanceReplicas(this::alcance);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    long minimo = consistencia.minimoDaLeitura();
+    ConsistenciaLeitura.Token token = consistencia.exigido();
+    if (token != null && token.instancia().equals(consistencia.instancia())) {
+      minimo = Math.max(minimo, token.instante());
+      token = null;
+    }
+
+    // Uma réplica que já alcançou "minimo", pelo que se sabe; senão, qualquer
+    // uma, conferida na hora
+    int indice = escolher(minimo);
+    boolean conferir = token != null;
+    if (indice < 0 && minimo > 0) {
+      indice = escolher(0);
+      conferir = true;
+    }
+    if (indice < 0) {
+      return primario.getConnection();
+    }
+
+    Connection conexao;
+    try {
+      conexao = replicas.get(indice).getConnection();
+    } catch (SQLException e) {
+      log.warn("Replica {} indisponivel; lendo do primario", indice, e);
+      latencias.set(indice, INDISPONIVEL);
+      return primario.getConnection();
+    }
+    if (!conferir) {
+      return conexao;
+    }
+
+    try {
+      if (alcancou(indice, conexao, minimo, token)) {
+        return conexao;
+      }
+    } catch (SQLException e) {
+      log.debug("Nao foi possivel ler o batimento da replica {}", indice, e);
+    }
+    conexao.close();
+    return primario.getConnection();
+  }
+
+  // 🔹 As réplicas usam as credenciais configuradas: com outras credenciais,
+  // a leitura vai para o primário.
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return primario.getConnection(username, password);
+  }
+
+  // 🔹 Índice da réplica que atende a próxima leitura, ou -1 se nenhuma está
+  // disponível (e, com minimo > 0, já enxerga um batimento depois dele).
+  int escolher(long minimo) {
+    int quantidade = replicas.size();
+
+    if (selecao == Selecao.MENOR_LATENCIA) {
+      int melhor = -1;
+      long menor = INDISPONIVEL;
+      for (int i = 0; i < quantidade; i++) {
+        long latencia = latencias.get(i);
+        if (latencia < menor && enxerga(i, minimo)) {
+          menor = latencia;
+          melhor = i;
+        }
+      }
+      return melhor;
+    }
+
+    int inicio = Math.floorMod(proxima.getAndIncrement(), quantidade);
+    for (int i = 0; i < quantidade; i++) {
+      int indice = (inicio + i) % quantidade;
+      if (latencias.get(indice) != INDISPONIVEL && enxerga(indice, minimo)) {
+        return indice;
+      }
+    }
+    return -1;
+  }
+
+  // 🔹 Maior batimento desta instância que uma réplica disponível já
+  // enxerga, pelo último ping ou conferência. Sem réplica disponível as
+  // leituras vão ao primário, que enxerga tudo.
+  long alcance() {
+    long maior = -1;
+    for (int i = 0; i < replicas.size(); i++) {
+      if (latencias.get(i) != INDISPONIVEL) {
+        maior = Math.max(maior, posicoes.get(i));
+      }
+    }
+    return maior < 0 ? Long.MAX_VALUE : maior;
+  }
+
+  // 🔹 Registra uma medição de latência (ou INDISPONIVEL) da réplica.
+  void registrarLatencia(int indice, long nanos) {
+    long anterior = latencias.get(indice);
+    if (nanos == INDISPONIVEL || anterior == 0 || anterior == INDISPONIVEL) {
+      latencias.set(indice, nanos);
+    } else {
+      latencias.set(indice, anterior + (nanos - anterior) / PESO_MEDICAO);
+    }
+  }
+
+  // 🔹 Confere na réplica se ela já enxerga o mínimo (um batimento desta
+  // instância) e a escrita do token.
+  private boolean alcancou(int indice, Connection conexao, long minimo, ConsistenciaLeitura.Token token)
+      throws SQLException {
+    if (!enxerga(indice, minimo)) {
+      long posicao = batimento(conexao, consistencia.instancia());
+      posicoes.accumulateAndGet(indice, posicao, Math::max);
+      if (posicao <= minimo) {
+        return false;
+      }
+    }
+    return token == null || batimento(conexao, token.instancia()) > token.instante();
+  }
+
+  private boolean enxerga(int indice, long minimo) {
+    return minimo == 0 || posicoes.get(indice) > minimo;
+  }
+
+  // Instante do último batimento da instância visto nesta conexão (0 = nenhum)
+  private static long batimento(Connection conexao, String instancia) throws SQLException {
+    try (PreparedStatement comando = conexao.prepareStatement(
+        "select instante from batimentos where instancia = ?")) {
+      comando.setString(1, instancia);
+      try (ResultSet resultado = comando.executeQuery()) {
+        return resultado.next() ? resultado.getLong(1) : 0;
+      }
+    }
+  }
+
+  private void medir() {
+    for (int i = 0; i < replicas.size(); i++) {
+      long inicio = System.nanoTime();
+      try (Connection conexao = replicas.get(i).getConnection()) {
+        if (!conexao.isValid(2)) {
+          registrarLatencia(i, INDISPONIVEL);
+          continue;
+        }
+        registrarLatencia(i, Math.max(1, System.nanoTime() - inicio));
+        medirPosicao(i, conexao);
+      } catch (SQLException | RuntimeException e) {
+        if (latencias.get(i) != INDISPONIVEL) {
+          log.warn("Replica {} nao respondeu ao ping", i, e);
+        }
+        registrarLatencia(i, INDISPONIVEL);
+      }
+    }
+  }
+
+  private void medirPosicao(int indice, Connection conexao) {
+    try {
+      posicoes.accumulateAndGet(indice, batimento(conexao, consistencia.instancia()), Math::max);
+    } catch (SQLException e) {
+      log.debug("Nao foi possivel ler o batimento da replica {}", indice, e);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (medicao != null) {
+      medicao.shutdownNow();
+    }
+    // O pool pode estar envolvido por outro DataSource (AdmissaoConexoes)
+    for (DataSource replica : replicas) {
+      try {
+        if (replica.isWrapperFor(Closeable.class)) {
+          replica.unwrap(Closeable.class).close();
+        }
+      } catch (Exception e) {
+        log.warn("Falha ao fechar o pool da replica", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.mbalem.demo_spring_rev_jpa.config;
+
+import com.mbalem.demo_spring_rev_jpa.metricas.MetricasPools;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+// 🔹 Leituras nas réplicas, escritas no primário
+// (autores.datasource.roteamento.habilitado=true).
+//
+// O DataSource da aplicação passa a ser um LazyConnectionDataSourceProxy: a
+// conexão física só é obtida no primeiro comando SQL, e até lá o proxy guarda
+// o que a transação pediu. As transações @Transactional(readOnly = true)
+// chamam Connection.setReadOnly(true) ao começar; com isso o proxy pede a
+// conexão ao ReplicasDataSource em vez do pool do primário.
+//
+// Só as transações somente leitura que começam fora de outra transação vão
+// para as réplicas: um método readOnly chamado de dentro de uma escrita usa a
+// conexão do primário que já está aberta. Os geradores de id e o JdbcTemplate
+// sem transação também ficam no primário.
+//
+// As réplicas podem estar atrasadas em relação ao primário; para que uma
+// leitura enxergue as escritas anteriores, veja ConsistenciaLeitura.
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "autores.datasource.roteamento.habilitado", havingValue = "true")
+public class RoteamentoLeitura {
+
+  // 🔹 Pool do primário, configurado pelas mesmas propriedades
+  // spring.datasource.* de quando o roteamento está desligado.
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  HikariDataSource primario(DataSourceProperties propriedades) {
+    return propriedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+  }
+
+  // 🔹 Um pool do Hikari por réplica, com as credenciais e as configurações
+  // spring.datasource.hikari.* do primário.
+  @Bean
+  ReplicasDataSource replicas(@Qualifier("primario") DataSource primario,
+      DataSourceProperties propriedades,
+      Environment ambiente,
+      ConsistenciaLeitura consistencia,
+      ObjectProvider<AdmissaoConexoes> admissao,
+      ObjectProvider<MetricasPools> metricas,
+      @Value("${autores.datasource.replicas.urls}") List<String> urls,
+      @Value("${autores.datasource.replicas.selecao:round-robin}") ReplicasDataSource.Selecao selecao,
+      @Value("${autores.datasource.replicas.intervalo-medicao:5s}") Duration intervaloMedicao) {
+
+    List<DataSource> replicas = new ArrayList<>();
+    for (String url : urls) {
+      HikariDataSource replica = propriedades.initializeDataSourceBuilder()
+          .type(HikariDataSource.class)
+          .url(url)
+          .build();
+      Binder.get(ambiente).bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+      replica.setPoolName("replica-" + replicas.size());
+      replica.setReadOnly(true);
+      metricas.ifAvailable(m -> m.instrumentar(replica));
+
+      AdmissaoConexoes limite = admissao.getIfAvailable();
+      replicas.add(limite != null ? limite.limitar(replica) : replica);
+    }
+    return new ReplicasDataSource(replicas, primario, selecao, consistencia, intervaloMedicao);
+  }
+
+  @Bean
+  @Primary
+  DataSource dataSource(@Qualifier("primario") DataSource primario, ReplicasDataSource replicas) {
+    LazyConnectionDataSourceProxy roteador = new LazyConnectionDataSourceProxy(primario);
+    roteador.setReadOnlyDataSource(replicas);
+    return roteador;
+  }
+}
@@ -0,0 +1,84 @@
+package com.mbalem.demo_spring_rev_jpa.config;
+
+import com.mbalem.demo_spring_rev_jpa.metricas.MetricasPools;
+import com.mbalem.demo_spring_rev_jpa.shard.EsquemaShards;
+import com.mbalem.demo_spring_rev_jpa.shard.Shards;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+// 🔹 Autores divididos em vários bancos (autores.shards.habilitado=true).
+//
+// O shard 0 é o banco de spring.datasource.url (onde já estão os autores
+// gravados antes dos shards: os ids deles não têm bits de shard) e
+// autores.shards.urls lista os demais, na ordem dos números dos shards.
+// Usuário, senha e configurações do Hikari são os de spring.datasource.
+//
+// O DataSource da aplicação passa a ser um DataSourceShards, que entrega
+// conexões do shard da thread; o Hibernate continua com uma única
+// EntityManagerFactory. Não pode ser combinado com as réplicas de leitura
+// (RoteamentoLeitura): as duas configurações definem o bean "dataSource".
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "autores.shards.habilitado", havingValue = "true")
+public class RoteamentoShards {
+
+  @Bean
+  DataSource dataSource(DataSourceProperties propriedades,
+      Environment ambiente,
+      ObjectProvider<AdmissaoConexoes> admissao,
+      ObjectProvider<MetricasPools> metricas,
+      @Value("${autores.shards.urls}") List<String> urls) {
+
+    Map<Object, Object> pools = new HashMap<>();
+    pools.put(0, pool(propriedades, ambiente, admissao, metricas, propriedades.determineUrl(), 0));
+    for (int i = 0; i < urls.size(); i++) {
+      pools.put(i + 1, pool(propriedades, ambiente, admissao, metricas, urls.get(i), i + 1));
+    }
+
+    DataSourceShards roteador = new DataSourceShards();
+    roteador.setTargetDataSources(pools);
+    roteador.setLenientFallback(false);
+    return roteador;
+  }
+
+  // 🔹 Faz o Hibernate criar/atualizar o esquema em todos os shards.
+  @Bean
+  HibernatePropertiesCustomizer propriedadesShards(@Value("${autores.shards.urls}") List<String> urls) {
+    int quantidade = Shards.quantidade(true, urls);
+    return propriedades -> propriedades.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER,
+        (IntegratorProvider) () -> List.of(new EsquemaShards(quantidade)));
+  }
+
+  private static DataSource pool(DataSourceProperties propriedades, Environment ambiente,
+      ObjectProvider<AdmissaoConexoes> admissao, ObjectProvider<MetricasPools> metricas, String url, int shard) {
+
+    HikariDataSource pool = propriedades.initializeDataSourceBuilder()
+        .type(HikariDataSource.class)
+        .url(url)
+        .build();
+    Binder.get(ambiente).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+    pool.setPoolName("shard-" + shard);
+    metricas.ifAvailable(m -> m.instrumentar(pool));
+
+    AdmissaoConexoes limite = admissao.getIfAvailable();
+    return limite != null ? limite.limitar(pool) : pool;
+  }
+}
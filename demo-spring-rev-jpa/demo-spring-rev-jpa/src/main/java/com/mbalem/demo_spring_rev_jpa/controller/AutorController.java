@@ -4,12 +4,25 @@ package com.mbalem.demo_spring_rev_jpa.controller;
 //    Como ela está em um subpacote de "com.mbalem.demo_spring_rev_jpa",
 //    o Spring Boot consegue detectá-la automaticamente no escaneamento de componentes.
 
+import com.mbalem.demo_spring_rev_jpa.busca.ReconstrucaoEmAndamentoException;
+import com.mbalem.demo_spring_rev_jpa.cache.CacheJson;
+import com.mbalem.demo_spring_rev_jpa.cache.IndiceVersoes;
+import com.mbalem.demo_spring_rev_jpa.config.ConsistenciaLeitura;
 import com.mbalem.demo_spring_rev_jpa.dao.AutorDao;
+import com.mbalem.demo_spring_rev_jpa.dao.TotalAutores;
 // 🔹 Importa a classe AutorDao, que contém a lógica de persistência usando JPA (EntityManager).
 
+import com.mbalem.demo_spring_rev_jpa.dto.AutorAlteracao;
+import com.mbalem.demo_spring_rev_jpa.dto.AutorAtualizado;
+import com.mbalem.demo_spring_rev_jpa.dto.AutorResumo;
 import com.mbalem.demo_spring_rev_jpa.entity.Autor;
 // 🔹 Importa a classe de entidade Autor, que representa a tabela "autores" no banco de dados.
 import com.mbalem.demo_spring_rev_jpa.entity.InfoAutor;
+import com.mbalem.demo_spring_rev_jpa.ingestao.FilaIngestao;
+import com.mbalem.demo_spring_rev_jpa.ingestao.StatusIngestao;
+import com.mbalem.demo_spring_rev_jpa.metricas.UsoConexoes;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.springframework.beans.factory.annotation.Autowired;
 // 🔹 Importa a anotação @Autowired, usada para injetar automaticamente
@@ -32,9 +45,23 @@ import org.springframework.web.bind.annotation.PostMapping;
 // 🔹 Importa @PostMapping, usada para mapear requisições HTTP do tipo POST
 //    a um método específico do controller.
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -60,6 +87,39 @@ public class AutorController {
   // 🔹 Cria um atributo do tipo AutorDao, responsável por realizar
   // operações de banco de dados (insert, select, etc.) da entidade Autor.
 
+  @Autowired
+  // 🔹 Total de autores a partir do contador mantido pelo DAO.
+  private TotalAutores totalAutores;
+
+  @Autowired
+  // 🔹 Versões dos autores em memória, para responder If-None-Match.
+  private IndiceVersoes indiceVersoes;
+
+  @Autowired
+  // 🔹 JSON já serializado de GET /autores/{id} e das páginas de GET /autores.
+  private CacheJson cacheJson;
+
+  @Autowired
+  // 🔹 Fila da ingestão assíncrona (POST /autores?assincrono=true).
+  private FilaIngestao filaIngestao;
+
+  @Autowired
+  // 🔹 Token de consistência da requisição, levado para a thread da
+  // exportação em streaming.
+  private ConsistenciaLeitura consistencia;
+
+  @Autowired
+  // 🔹 ObjectMapper configurado pelo Spring Boot, usado na exportação em
+  // streaming, onde cada autor é serializado manualmente.
+  private ObjectMapper mapper;
+
+  // 🔹 Tipo de conteúdo "newline-delimited JSON" (um JSON por linha).
+  private static final String NDJSON = "application/x-ndjson";
+
+  // 🔹 Quantidade máxima de autores aceita por chamada de POST /autores/batch
+  // (e de ids por chamada de DELETE /autores).
+  private static final int LIMITE_LOTE = 10_000;
+
   @PostMapping
   // 🔹 Mapeia requisições HTTP POST para o método abaixo.
   // Ou seja, quando o cliente enviar um POST para /autores, este método será
@@ -85,29 +145,144 @@ public class AutorController {
     // O Spring converte automaticamente esse objeto em JSON na resposta HTTP.
   }
 
+  // 🔹 Mapeia POST para "/autores?assincrono=true" (ingestão assíncrona).
+  // O autor vai para a FilaIngestao e é gravado em lote, junto com outros,
+  // logo em seguida. A resposta é imediata: 202 com o código de rastreio e o
+  // endereço (Location) para consultar a situação.
+  // Com a fila cheia, responde 503: o cliente deve tentar de novo mais tarde.
+  @PostMapping(params = "assincrono=true")
+  public ResponseEntity<StatusIngestao> salvarAssincrono(@RequestBody Autor autor) {
+
+    // Colunas NOT NULL: melhor recusar agora do que falhar depois, no lote
+    if (autor.getNome() == null || autor.getSobrenome() == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe \"nome\" e \"sobrenome\".");
+    }
+    // Os ids são gerados na gravação; um id enviado faria o persist falhar
+    // (e a regravação um a um o trocaria por um id novo)
+    if (autor.getId() != null || (autor.getInfoAutor() != null && autor.getInfoAutor().getId() != null)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nao informe \"id\" em autores novos.");
+    }
+
+    String rastreio = filaIngestao.enfileirar(autor);
+    if (rastreio == null) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Fila de ingestao cheia.");
+    }
+    return ResponseEntity.accepted()
+        .location(URI.create("/autores/ingestao/" + rastreio))
+        .body(filaIngestao.situacao(rastreio));
+  }
+
+  // 🔹 Mapeia GET para "/autores/ingestao/{rastreio}": situação de um autor
+  // enviado com "assincrono=true" (PENDENTE, GRAVADO com o id, ou FALHOU).
+  // A situação só existe na instância que recebeu o POST (ver FilaIngestao).
+  @GetMapping("ingestao/{rastreio}")
+  public StatusIngestao getIngestao(@PathVariable String rastreio) {
+
+    StatusIngestao situacao = filaIngestao.situacao(rastreio);
+    if (situacao == null) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Rastreio " + rastreio + " nao encontrado.");
+    }
+    return situacao;
+  }
+
+  // 🔹 Mapeia POST para "/autores/batch".
+  // Recebe uma lista de autores (cada um podendo trazer seu "infoAutor") e
+  // grava todos em uma única transação, com INSERTs em lote.
+  // Retorna os ids gerados, na mesma ordem da lista recebida.
+  @PostMapping("batch")
+  public List<Long> salvarEmLote(@RequestBody List<Autor> autores) {
+
+    // Limita o tamanho de cada chamada para manter a transação curta
+    if (autores.size() > LIMITE_LOTE) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "No maximo " + LIMITE_LOTE + " autores por requisicao.");
+    }
+
+    dao.saveAll(autores);
+
+    return autores.stream().map(Autor::getId).toList();
+  }
+
   // Indica que este método responderá requisições HTTP do tipo PUT,
   // utilizadas normalmente para atualizar recursos existentes.
+  // Com If-Match (ETag recebido em GET /autores/{id}), só atualiza se o autor
+  // ainda estiver naquela versão; senão responde 412. Sem If-Match, o campo
+  // "versao" do JSON (quando enviado) tem o mesmo papel, com 409 no conflito.
   @PutMapping
-  public Autor atualizar(@RequestBody Autor autor) {
+  public ResponseEntity<AutorAtualizado> atualizar(@RequestBody Autor autor,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     // @RequestBody faz o Spring pegar o JSON enviado no corpo da requisição
     // e converter automaticamente em um objeto Autor preenchido.
 
-    // Chama o método do DAO responsável por atualizar o autor no banco de dados.
-    dao.update(autor);
+    if (autor.getId() == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe \"id\".");
+    }
+
+    List<Long> versoes = ifMatch != null ? versoesIfMatch(ifMatch)
+        : autor.getVersao() != null ? List.of(autor.getVersao()) : null;
 
-    // Retorna o próprio objeto Autor atualizado.
+    // Chama o método do DAO responsável por atualizar o autor no banco de dados.
+    // O DAO devolve a nova versão (null quando o autor não existe).
+    Long versao;
+    try {
+      versao = dao.update(autor, versoes);
+    } catch (OptimisticLockingFailureException e) {
+      throw conflitoDeVersao(autor.getId(), ifMatch);
+    }
+    if (versao == null) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Autor id " + autor.getId() + " nao encontrado.");
+    }
+
+    // Retorna os campos gravados, com a nova versão (o InfoAutor do JSON não é
+    // gravado pelo PUT e não volta na resposta). Sem versão esperada, a nova
+    // versão não é lida: a resposta vem sem ETag e com "versao" null.
     // O Spring converte esse objeto automaticamente em JSON na resposta HTTP.
-    return autor;
+    if (versao == AutorDao.VERSAO_NAO_LIDA) {
+      return ResponseEntity.ok()
+          .body(new AutorAtualizado(autor.getId(), autor.getNome(), autor.getSobrenome(), null));
+    }
+    return ResponseEntity.ok().eTag(etag(versao))
+        .body(new AutorAtualizado(autor.getId(), autor.getNome(), autor.getSobrenome(), versao));
+  }
+
+  // 🔹 Mapeia PATCH para "/autores/{id}": altera só os campos enviados no JSON.
+  // Ex.: PATCH /autores/5 com {"sobrenome": "Assis"}
+  // Diferente do PUT, não lê o autor antes de gravar: é um único UPDATE.
+  // Responde 204 (sem corpo), já que o autor atualizado não é lido de volta;
+  // com If-Match, o ETag da resposta traz a nova versão (sem ele, a versão
+  // não é lida e a resposta vem sem ETag). Aceita If-Match como o PUT.
+  @PatchMapping("{id}")
+  public ResponseEntity<Void> atualizarParcial(@PathVariable Long id, @RequestBody AutorAlteracao alteracao,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+
+    if (alteracao.vazia()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe \"nome\" e/ou \"sobrenome\".");
+    }
+
+    Long versao;
+    try {
+      versao = dao.updateParcial(id, alteracao, ifMatch != null ? versoesIfMatch(ifMatch) : null);
+    } catch (OptimisticLockingFailureException e) {
+      throw conflitoDeVersao(id, ifMatch);
+    }
+    if (versao == null) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Autor id " + id + " nao encontrado.");
+    }
+    if (versao == AutorDao.VERSAO_NAO_LIDA) {
+      return ResponseEntity.noContent().build();
+    }
+    return ResponseEntity.noContent().eTag(etag(versao)).build();
   }
 
   @DeleteMapping("{id}")
   public String remover(@PathVariable Long id) {
 
     // Chama o método de exclusão no DAO/Repository, passando o ID recebido na URL.
-    // Nesse ponto, assumimos que o método delete(id) já sabe localizar ou criar uma
-    // referência
-    // da entidade e executar a remoção corretamente via JPA/Hibernate.
-    dao.delete(id);
+    // O DAO remove o autor e o seu InfoAutor direto no banco, sem carregar a
+    // entidade, e retorna false quando o id não existe.
+    if (!dao.delete(id)) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Autor id " + id + " nao encontrado.");
+    }
 
     // Retorna uma mensagem simples confirmando a exclusão.
     // Em aplicações REST reais, o ideal seria retornar um ResponseEntity com status
@@ -116,57 +291,190 @@ public class AutorController {
     return "Autor id " + id + " foi excluido com sucesso.";
   }
 
+  // 🔹 Mapeia DELETE para "/autores" (remoção em massa).
+  // Aceita UM dos filtros:
+  // - ?ids=1,2,3 → remove os autores com esses ids;
+  // - ?cargo=Professor → remove os autores cujo cargo contém o valor.
+  // Os InfoAutor dos autores removidos também são apagados.
+  // Retorna a quantidade de autores removidos.
+  @DeleteMapping
+  public int removerEmLote(
+      @RequestParam(required = false) List<Long> ids,
+      @RequestParam(required = false) String cargo
+  ) {
+
+    // Exige exatamente um filtro: um DELETE sem filtro apagaria a tabela toda
+    if ((ids == null) == (cargo == null)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe \"ids\" ou \"cargo\".");
+    }
+
+    if (ids != null) {
+      if (ids.size() > LIMITE_LOTE) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+            "No maximo " + LIMITE_LOTE + " ids por requisicao.");
+      }
+      return dao.deleteAllById(ids);
+    }
+
+    if (cargo.isBlank()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "O filtro \"cargo\" nao pode ser vazio.");
+    }
+    return dao.deleteAllByCargo(cargo);
+  }
+
   // Mapeia requisições HTTP GET para o endpoint "/{id}"
+  // A resposta traz o ETag com a versão do autor. Se o cliente envia
+  // If-None-Match com o ETag que já tem e o autor não mudou, a resposta é 304
+  // sem corpo. A versão vem do IndiceVersoes (memória); quando o autor não
+  // está lá (ou a versão guardada venceu), ele é carregado e a versão é a do
+  // autor carregado, sem uma consulta a mais só para ela.
   @GetMapping("{id}")
-  public Autor getById(@PathVariable Long id) { // Recebe o ID passado na URL como parâmetro
-
-    return dao.findById(id); // Chama o DAO para buscar o Autor pelo ID e retorna o resultado
+  public ResponseEntity<byte[]> getById(@PathVariable Long id, // Recebe o ID passado na URL como parâmetro
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+    long versao = indiceVersoes.versao(id);
+    if (versao != IndiceVersoes.DESCONHECIDA && ifNoneMatch != null && contemVersao(ifNoneMatch, versao)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag(versao)).build();
+    }
+
+    // Chama o DAO para buscar o Autor pelo ID, a menos que o JSON dele, na
+    // versão atual, já esteja no CacheJson: nesse caso os bytes vão direto
+    // para a resposta. Com a versão DESCONHECIDA o autor é sempre carregado.
+    CacheJson.AutorJson autor = cacheJson.autor(id, versao, () -> dao.findById(id));
+    if (autor == null) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Autor id " + id + " nao encontrado.");
+    }
+    if (ifNoneMatch != null && contemVersao(ifNoneMatch, autor.versao())) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag(autor.versao())).build();
+    }
+    return ResponseEntity.ok()
+        .eTag(etag(autor.versao()))
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(autor.json());
   }
 
   // Mapeia requisições HTTP GET para o endpoint "/"
+  // Paginado por cursor: ?after=<id do último autor recebido>&limit=N
+  // A resposta traz "proximoCursor", que deve ser enviado como "after" na
+  // próxima chamada (null quando não há mais páginas).
+  // O JSON de cada página fica no CacheJson até a próxima escrita.
   @GetMapping
-  public List<Autor> getAll() { // Método para retornar todos os autores cadastrados
+  public ResponseEntity<byte[]> getAll(
+      @RequestParam(required = false) Long after, // 🔹 Cursor: id do último autor da página anterior
+      @RequestParam(defaultValue = "" + AutorDao.LIMITE_PADRAO) int limit // 🔹 Limitado a AutorDao.LIMITE_MAXIMO
+  ) {
 
-    return dao.findByAll(); // Chama o DAO e retorna a lista completa de Autores
+    int limite = AutorDao.limitePagina(limit);
+    // Chama o DAO (só se a página não estiver em cache) e retorna uma página de
+    // resumos (id, nome, sobrenome, cargo) em JSON
+    byte[] json = cacheJson.pagina(after, limite, () -> dao.findByAll(after, limite));
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
+  }
+
+  // 🔹 Mapeia GET para "/autores/export".
+  // Exporta todos os autores (com InfoAutor, quando houver) em NDJSON:
+  // um objeto JSON por linha. O corpo é escrito aos poucos, enquanto o DAO
+  // percorre a tabela, então a memória usada não depende do tamanho da tabela.
+  @GetMapping(value = "export", produces = NDJSON)
+  public ResponseEntity<StreamingResponseBody> exportar() {
+
+    // O corpo é escrito em outra thread (processamento assíncrono do MVC): as
+    // conexões usadas nela contam para esta requisição, e as leituras dela
+    // exigem o token de consistência que o cliente enviou
+    UsoConexoes uso = UsoConexoes.atual();
+    ConsistenciaLeitura.Token token = consistencia.exigido();
+    StreamingResponseBody corpo = saida -> {
+      try (UsoConexoes.Vinculo vinculo = UsoConexoes.vincular(uso);
+          ConsistenciaLeitura.Exigencia exigencia = consistencia.exigir(token)) {
+        dao.exportAll(autor -> {
+          try {
+            // Serializa um autor por vez e termina a linha
+            saida.write(mapper.writeValueAsBytes(autor));
+            saida.write('\n');
+          } catch (IOException e) {
+            // Cliente desconectou ou falha de escrita: interrompe a exportação
+            throw new UncheckedIOException(e);
+          }
+        });
+      }
+    };
+
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(NDJSON))
+        .body(corpo);
   }
 
   // Mapeia requisições GET para "/nomeOrSobrenome"
   @GetMapping("nomeOrSobrenome")
-  public List<Autor> getAutoresByNomeOrSobrenome(@RequestParam String termo) {
+  public List<AutorResumo> getAutoresByNomeOrSobrenome(@RequestParam String termo) {
     // Recebe um parâmetro de consulta da URL ?termo=valor
 
     return dao.findAllByNomeOrSobrenome(termo);
     // Busca autores cujo nome OU sobrenome contenham o termo informado
   }
 
+  // 🔹 Mapeia POST para "/autores/nomeOrSobrenome/reindexar".
+  // Reconstrói o índice de trigramas da busca a partir dos dados do banco
+  // (por exemplo, depois de uma carga feita direto no MySQL).
+  // Retorna a quantidade de autores indexados.
+  @PostMapping("nomeOrSobrenome/reindexar")
+  public long reindexarBusca() {
+    try {
+      return dao.reconstruirIndiceBusca();
+    } catch (ReconstrucaoEmAndamentoException e) {
+      // Outra reconstrução já está rodando
+      throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+    }
+  }
+
   // Mapeia GET para "/total"
   @GetMapping("total")
-  public Long getTotalDeAutores() { // Método para retornar o número total de autores na tabela
+  public long getTotalDeAutores() { // Método para retornar o número total de autores na tabela
 
-    return dao.getTotalElements(); // Chama o DAO e retorna a contagem de registros
+    return totalAutores.total(); // Lê o contador (exato ou aproximado, conforme configuração)
   }
 
   // 🔹 Mapeia requisições HTTP PUT para o endpoint "/autores/{id}/info".
   // Esse método serve para salvar ou atualizar as informações adicionais
   // (InfoAutor)
   // associadas a um autor específico baseado no ID enviado na URL.
+  // Aceita If-Match com o ETag do autor (GET /autores/{id}): se o autor mudou
+  // desde então, responde 412; sem If-Match, uma gravação concorrente
+  // responde 409.
   @PutMapping("/{id}/info")
-  public Autor salvarInfoAutor(
+  public InfoAutor salvarInfoAutor(
       @PathVariable Long id, // 🔹 Captura o ID presente na URL. Ex.: /autores/5/info → id = 5
-      @RequestBody InfoAutor infoAutor // 🔹 Recebe o JSON do corpo da requisição e converte para um objeto InfoAutor
+      @RequestBody InfoAutor infoAutor, // 🔹 Recebe o JSON do corpo da requisição e converte para um objeto InfoAutor
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
   ) {
 
+    // 🔹 "cargo" é obrigatório (coluna NOT NULL em info_autores).
+    if (infoAutor.getCargo() == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe \"cargo\".");
+    }
+
     // 🔹 Chama o método do DAO que salva ou atualiza os dados de InfoAutor no
     // banco,
     // associando-os ao autor correspondente ao ID.
-    return dao.saveInfoAutor(infoAutor, id);
+    // Se o autor já tem um InfoAutor, ele é atualizado no lugar; a resposta
+    // traz o InfoAutor gravado.
+    InfoAutor gravado;
+    try {
+      gravado = dao.saveInfoAutor(infoAutor, id, ifMatch != null ? versoesIfMatch(ifMatch) : null);
+    } catch (OptimisticLockingFailureException e) {
+      throw conflitoDeVersao(id, ifMatch);
+    }
+    if (gravado == null) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Autor id " + id + " nao encontrado.");
+    }
+    return gravado;
   }
 
   // 🔹 Mapeia requisições HTTP GET para o endpoint "/autores/info".
   // Esse método permite buscar autores filtrando por um determinado cargo,
   // enviado como parâmetro na URL.
   @GetMapping("info")
-  public List<Autor> encontrarByCargo(
+  public List<AutorResumo> encontrarByCargo(
       @RequestParam String cargo // 🔹 Captura o parâmetro "?cargo=valor" enviado na URL.
                                  // Ex.: /autores/info?cargo=Professor
   ) {
@@ -176,4 +484,76 @@ public class AutorController {
     return dao.findByCargo(cargo);
   }
 
+  // 🔹 ETag forte a partir da versão do autor. Ex.: versão 3 → "3"
+  private static String etag(Long versao) {
+    return "\"" + versao + "\"";
+  }
+
+  // 🔹 Confere se o If-None-Match (ex.: "3" ou W/"3", "4" ou *) contém a
+  // versão, percorrendo o texto do cabeçalho sem criar strings.
+  // If-None-Match usa comparação fraca: W/"3" também corresponde à versão 3.
+  static boolean contemVersao(String ifNoneMatch, long versao) {
+
+    int i = 0;
+    int tamanho = ifNoneMatch.length();
+    while (i < tamanho) {
+      char c = ifNoneMatch.charAt(i);
+      if (c == '*') {
+        return true;
+      }
+      if (c == '"') {
+        long valor = 0;
+        boolean numero = true;
+        int j = i + 1;
+        for (; j < tamanho && ifNoneMatch.charAt(j) != '"'; j++) {
+          char d = ifNoneMatch.charAt(j);
+          if (numero && d >= '0' && d <= '9' && valor <= (Long.MAX_VALUE - 9) / 10) {
+            valor = valor * 10 + (d - '0');
+          } else {
+            numero = false;
+          }
+        }
+        if (numero && j > i + 1 && valor == versao) {
+          return true;
+        }
+        i = j + 1;
+      } else {
+        i++; // vírgulas, espaços e o prefixo W/
+      }
+    }
+    return false;
+  }
+
+  // 🔹 Versões aceitas pelo cabeçalho If-Match (ex.: "3" ou "3", "4").
+  // "*" aceita qualquer versão (null). If-Match usa comparação forte: ETags
+  // fracos (W/"3") ou inválidos nunca casam, e sem nenhum válido a resposta já
+  // é 412.
+  private static List<Long> versoesIfMatch(String ifMatch) {
+
+    if (ifMatch.strip().equals("*")) {
+      return null;
+    }
+
+    List<Long> versoes = new ArrayList<>();
+    for (String tag : ifMatch.split(",")) {
+      String valor = tag.strip();
+      if (valor.length() > 2 && valor.startsWith("\"") && valor.endsWith("\"")) {
+        try {
+          versoes.add(Long.parseLong(valor.substring(1, valor.length() - 1)));
+        } catch (NumberFormatException e) {
+          // ETag que não é deste servidor: não casa com nenhuma versão
+        }
+      }
+    }
+    if (versoes.isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "If-Match nao corresponde a versao atual.");
+    }
+    return versoes;
+  }
+
+  // 🔹 412 quando a versão esperada veio do If-Match; 409 quando veio do JSON.
+  private static ResponseStatusException conflitoDeVersao(Long id, String ifMatch) {
+    return new ResponseStatusException(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT,
+        "Autor id " + id + " foi alterado por outra requisicao.");
+  }
 }
@@ -0,0 +1,80 @@
+package com.mbalem.demo_spring_rev_jpa.controller;
+
+import com.mbalem.demo_spring_rev_jpa.cache.CacheJson;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// 🔹 Expõe as estatísticas do cache de segundo nível do Hibernate e do
+// cache de respostas JSON.
+@RestController
+@RequestMapping("/cache")
+public class CacheController {
+
+  private final Statistics estatisticas;
+
+  private final CacheJson cacheJson;
+
+  public CacheController(EntityManagerFactory emf, CacheJson cacheJson) {
+    // As estatísticas ficam na SessionFactory do Hibernate por trás do JPA
+    this.estatisticas = emf.unwrap(SessionFactory.class).getStatistics();
+    this.cacheJson = cacheJson;
+  }
+
+  // 🔹 GET /cache/estatisticas
+  // Totais do cache de segundo nível e do cache de consultas e, para cada
+  // região, acertos (hits), faltas (misses) e inserções (puts).
+  // (O provedor JCache não informa a quantidade de entradas em memória.)
+  @GetMapping("estatisticas")
+  public Map<String, Object> getEstatisticas() {
+
+    Map<String, Object> resposta = new LinkedHashMap<>();
+    resposta.put("hits", estatisticas.getSecondLevelCacheHitCount());
+    resposta.put("misses", estatisticas.getSecondLevelCacheMissCount());
+    resposta.put("puts", estatisticas.getSecondLevelCachePutCount());
+
+    // Cache de resultados de consultas
+    resposta.put("consultasHits", estatisticas.getQueryCacheHitCount());
+    resposta.put("consultasMisses", estatisticas.getQueryCacheMissCount());
+    resposta.put("consultasPuts", estatisticas.getQueryCachePutCount());
+
+    Map<String, Object> regioes = new LinkedHashMap<>();
+    for (String nome : estatisticas.getSecondLevelCacheRegionNames()) {
+      // Regiões de entidades ou de resultados de consultas
+      CacheRegionStatistics regiao = estatisticas.getCacheRegionStatistics(nome);
+      if (regiao == null) {
+        continue;
+      }
+      regioes.put(nome, Map.of(
+          "hits", regiao.getHitCount(),
+          "misses", regiao.getMissCount(),
+          "puts", regiao.getPutCount()));
+    }
+    resposta.put("regioes", regioes);
+
+    // Cache de respostas JSON (CacheJson)
+    resposta.put("json", Map.of(
+        "autores", resumo(cacheJson.estatisticasAutores()),
+        "paginas", resumo(cacheJson.estatisticasPaginas())));
+
+    return resposta;
+  }
+
+  private static Map<String, Object> resumo(CacheStats stats) {
+    return Map.of(
+        "hits", stats.hitCount(),
+        "misses", stats.missCount(),
+        "evictions", stats.evictionCount());
+  }
+}
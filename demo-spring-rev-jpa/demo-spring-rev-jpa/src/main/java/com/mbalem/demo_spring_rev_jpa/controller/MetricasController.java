@@ -0,0 +1,71 @@
+package com.mbalem.demo_spring_rev_jpa.controller;
+
+import com.mbalem.demo_spring_rev_jpa.metricas.FiltroUsoConexoes;
+import com.mbalem.demo_spring_rev_jpa.metricas.MetricasMetodos;
+import com.mbalem.demo_spring_rev_jpa.metricas.MetricasPools;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// 🔹 Expõe as métricas dos métodos de AutorDao e AutorController e as do uso
+// das conexões (pools do Hikari e rotas).
+@RestController
+@RequestMapping("/metricas")
+@ConditionalOnProperty(name = "autores.metricas.habilitado", havingValue = "true", matchIfMissing = true)
+public class MetricasController {
+
+  private final MetricasMetodos metricas;
+
+  private final MetricasPools pools;
+
+  private final FiltroUsoConexoes rotas;
+
+  public MetricasController(MetricasMetodos metricas, MetricasPools pools, FiltroUsoConexoes rotas) {
+    this.metricas = metricas;
+    this.pools = pools;
+    this.rotas = rotas;
+  }
+
+  // 🔹 GET /metricas
+  // Para cada método: chamadas, erros, linhas devolvidas, chamadas por
+  // segundo e latências (média, p50, p90, p99, p99.9 e máxima, em ms),
+  // acumuladas desde o início ou desde o último DELETE /metricas.
+  @GetMapping
+  public Map<String, Object> getMetricas() {
+    Map<String, Object> resposta = new LinkedHashMap<>();
+    resposta.put("segundos", metricas.segundosMedidos());
+    resposta.put("metodos", metricas.resumir());
+    return resposta;
+  }
+
+  // 🔹 GET /metricas/conexoes
+  // "pools": situação de cada pool do Hikari (conexões ativas, ociosas e
+  // threads esperando) e latências de aquisição e de uso das conexões.
+  // "rotas": por rota, conexões por requisição, espera e posse das conexões e
+  // a fração da duração das requisições em que seguraram conexões; as rotas
+  // com mais posse são as que esgotam o pool.
+  @GetMapping("/conexoes")
+  public Map<String, Object> getConexoes() {
+    Map<String, Object> resposta = new LinkedHashMap<>();
+    resposta.put("pools", pools.resumir());
+    resposta.put("rotas", rotas.resumir());
+    return resposta;
+  }
+
+  // 🔹 DELETE /metricas
+  // Recomeça a medição (por exemplo, antes de um teste de carga).
+  @DeleteMapping
+  public ResponseEntity<Void> zerar() {
+    metricas.zerar();
+    pools.zerar();
+    rotas.zerar();
+    return ResponseEntity.noContent().build();
+  }
+}
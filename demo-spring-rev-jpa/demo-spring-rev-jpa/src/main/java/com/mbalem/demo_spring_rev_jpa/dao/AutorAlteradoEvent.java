@@ -0,0 +1,20 @@
+package com.mbalem.demo_spring_rev_jpa.dao;
+
+// 🔹 Evento publicado pelo AutorDao sempre que um autor é gravado ou removido.
+// Estruturas mantidas em memória (como o índice de busca) escutam este evento
+// com @TransactionalEventListener, então só reagem depois do commit: um
+// rollback nunca chega até elas.
+//
+// "nome" e "sobrenome" trazem os valores gravados; null significa que o campo
+// não foi alterado pela operação. "versao" é a versão do autor após a
+// gravação; null quando ela não foi lida (atualização sem versão esperada).
+public record AutorAlteradoEvent(Long id, String nome, String sobrenome, Long versao, boolean removido) {
+
+  public static AutorAlteradoEvent gravado(Long id, String nome, String sobrenome, Long versao) {
+    return new AutorAlteradoEvent(id, nome, sobrenome, versao, false);
+  }
+
+  public static AutorAlteradoEvent removido(Long id) {
+    return new AutorAlteradoEvent(id, null, null, null, true);
+  }
+}
@@ -7,21 +7,47 @@ package com.mbalem.demo_spring_rev_jpa.dao;
 import com.mbalem.demo_spring_rev_jpa.entity.Autor;
 // 🔹 Importa a classe de entidade Autor, que representa a tabela "autores"
 //    no banco de dados. Será usada como tipo genérico para as operações JPA.
+import com.mbalem.demo_spring_rev_jpa.entity.Contador;
+import com.mbalem.demo_spring_rev_jpa.busca.IndiceTrigramas;
+import com.mbalem.demo_spring_rev_jpa.cache.IndiceVersoes;
+import com.mbalem.demo_spring_rev_jpa.config.ConsistenciaLeitura;
+import com.mbalem.demo_spring_rev_jpa.busca.ReconstrucaoEmAndamentoException;
+import com.mbalem.demo_spring_rev_jpa.dto.AutorAlteracao;
+import com.mbalem.demo_spring_rev_jpa.dto.AutorResumo;
+import com.mbalem.demo_spring_rev_jpa.dto.Pagina;
 import com.mbalem.demo_spring_rev_jpa.entity.InfoAutor;
+import com.mbalem.demo_spring_rev_jpa.shard.Shards;
 
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Hibernate;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 // 🔹 Importa a anotação @Repository, que indica que esta classe é um componente
 //    de acesso a dados (Data Access Object - DAO).  
 //    O Spring trata essa classe como parte da camada de persistência,  
 //    permitindo injeção automática (@Autowired) e tradução de exceções SQL.
 
-import org.springframework.transaction.annotation.Transactional;
-// 🔹 Importa @Transactional, usada para gerenciar transações do banco de dados.
-//    Quando aplicada a um método, garante que ele execute dentro de uma transação.
-//    Se ocorrer erro, a transação é revertida automaticamente (rollback).
-
 import jakarta.persistence.EntityManager;
 // 🔹 Importa a interface EntityManager, principal responsável por interagir
 //    com o banco de dados em JPA.  
@@ -32,6 +58,11 @@ import jakarta.persistence.PersistenceContext;
 //    o EntityManager configurado pelo Spring (via JPA e Hibernate).
 //    Assim, não é necessário criar manualmente um EntityManagerFactory.
 
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.TypedQuery;
+
 @Repository
 // 🔹 Marca a classe como um "repositório" de dados.
 // Faz parte da arquitetura em camadas do Spring (Controller → Service →
@@ -52,11 +83,102 @@ public class AutorDao {
   // 🔹 Cria uma variável privada "manager" do tipo EntityManager,
   // usada para persistir (inserir), buscar, atualizar e remover entidades.
 
-  @Transactional(readOnly = false)
-  // 🔹 Indica que este método será executado dentro de uma transação.
-  // readOnly = false → significa que o método altera o banco de dados
-  // (neste caso, com um INSERT).
-  // Se fosse apenas leitura, poderíamos usar readOnly = true.
+  @Autowired
+  // 🔹 Publica os eventos de escrita (AutorAlteradoEvent) consumidos pelas
+  // estruturas em memória, como o índice de busca.
+  private ApplicationEventPublisher eventos;
+
+  @Autowired
+  // 🔹 Índice de trigramas usado para evitar a varredura completa em
+  // findAllByNomeOrSobrenome.
+  private IndiceTrigramas indiceBusca;
+
+  @Autowired
+  // 🔹 Versões dos autores em memória; findById registra nele as versões
+  // lidas.
+  private IndiceVersoes indiceVersoes;
+
+  @Autowired
+  // 🔹 Shards dos autores. Cada método abre as suas transações por ele, já no
+  // shard certo (por isso não há @Transactional aqui): escritas e buscas por
+  // id vão ao shard do id; listagens, buscas e totais consultam todos os
+  // shards e juntam os resultados. Com um só shard, cada método continua
+  // sendo uma única transação, como antes.
+  private Shards shards;
+
+  @Autowired
+  // 🔹 Decide se uma leitura pode preencher os caches locais quando ela pode
+  // ir a uma réplica atrasada (ver lerParaOsCaches).
+  private ConsistenciaLeitura consistencia;
+
+  // 🔹 Acima desta quantidade de candidatos o índice não é seletivo o bastante
+  // e é mais barato deixar o banco varrer a tabela do que montar um IN enorme.
+  private static final int LIMITE_CANDIDATOS = 2000;
+
+  // 🔹 Acima desta quantidade de candidatos no shard, a consulta "in :ids" não
+  // vai para o cache de consultas: a chave de cada entrada guarda a lista de
+  // ids, e a região é limitada pela quantidade de entradas, não pelo tamanho
+  // delas.
+  private static final int LIMITE_CANDIDATOS_EM_CACHE = 64;
+
+  // 🔹 Quantidade máxima de ids em cada "in (...)" das remoções em massa.
+  private static final int LIMITE_IN = 1000;
+
+  // 🔹 Região do cache de consultas (Hibernate query cache) usada pelas
+  // buscas por termo e por cargo. O Hibernate invalida as entradas sozinho
+  // quando qualquer escrita feita por ele toca as tabelas consultadas.
+  // Tamanho e expiração ficam em application.conf.
+  // A chave do cache de consultas não inclui o banco: cada shard além do 0
+  // usa a sua própria região ("consultas_autores_1", ...), ver regiaoConsultas().
+  private static final String REGIAO_CONSULTAS = "consultas_autores";
+
+  // 🔹 Ordem do resultado de findByCargo: por nome, ignorando maiúsculas e
+  // acentos, e pelo id entre nomes iguais. É aplicada aqui, depois de juntar
+  // os shards, e não com "order by" em cada banco: a collation de cada shard
+  // pode ser diferente, e a ordem não pode depender disso.
+  private static final Comparator<AutorResumo> ORDEM_CARGO;
+
+  static {
+    Collator collator = Collator.getInstance(Locale.of("pt", "BR"));
+    collator.setStrength(Collator.PRIMARY);
+    ORDEM_CARGO = Comparator.comparing(AutorResumo::nome, Comparator.nullsFirst(collator::compare))
+        .thenComparing(AutorResumo::id);
+  }
+
+  // 🔹 Início comum das consultas de busca que devolvem AutorResumo: só as
+  // colunas da resposta, com o cargo vindo do InfoAutor pelo mesmo SELECT.
+  private static final String SELECT_RESUMO =
+      "select new com.mbalem.demo_spring_rev_jpa.dto.AutorResumo(a.id, a.nome, a.sobrenome, i.cargo) " +
+      "from Autor a left join a.infoAutor i ";
+
+  // 🔹 Devolvido por update() e updateParcial() quando o autor foi gravado sem
+  // versão esperada: a nova versão não é lida de volta (seria mais uma ida ao
+  // banco por escrita só para montar um ETag que o cliente não pediu).
+  public static final long VERSAO_NAO_LIDA = -1;
+
+  // 🔹 Tamanho de página usado quando o cliente não informa "limit".
+  public static final int LIMITE_PADRAO = 50;
+
+  // 🔹 Tamanho máximo de página aceito pelo servidor.
+  // Mesmo que o cliente peça mais, nenhuma consulta de listagem devolve mais
+  // do que isso, para não voltar a carregar a tabela inteira na memória.
+  public static final int LIMITE_MAXIMO = 500;
+
+  // 🔹 A cada quantas linhas exportadas o contexto de persistência é limpo.
+  // Sem isso, cada Autor lido ficaria preso no EntityManager até o fim da
+  // exportação e a memória cresceria junto com a tabela.
+  private static final int LOTE_EXPORTACAO = 1000;
+
+  // 🔹 Fetch size das leituras em streaming (exportação e reconstrução do
+  // índice). O padrão, Integer.MIN_VALUE, é o valor que ativa o streaming de
+  // linhas no driver do MySQL; outros bancos exigem um valor positivo.
+  @Value("${autores.streaming.fetch-size:" + Integer.MIN_VALUE + "}")
+  private int fetchSizeStreaming;
+
+  // 🔹 Intervalo de flush/clear em saveAll. Segue o tamanho de lote JDBC
+  // configurado para o Hibernate, para que cada flush feche lotes completos.
+  @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+  private int loteEscrita;
 
   public void save(Autor autor) {
     // 🔹 Método público que recebe um objeto Autor como parâmetro e o salva no
@@ -64,133 +186,816 @@ public class AutorDao {
     // A responsabilidade de construir o objeto Autor (com nome, sobrenome etc.)
     // é da camada Controller.
 
-    this.manager.persist(autor);
-    // 🔹 Usa o EntityManager para inserir o objeto Autor na tabela "autores".
-    // O método persist() marca o objeto como "gerenciado" pelo contexto JPA,
-    // e o Hibernate gera automaticamente o comando SQL INSERT quando a
-    // transação for confirmada (commit).
+    // 🔹 Executa dentro de uma transação de escrita no shard escolhido para o
+    // autor novo (em rodízio). Se ocorrer erro, a transação é revertida
+    // automaticamente (rollback).
+    this.shards.escrever(this.shards.proximoParaGravar(), () -> {
+
+      this.manager.persist(autor);
+      // 🔹 Usa o EntityManager para inserir o objeto Autor na tabela "autores".
+      // O método persist() marca o objeto como "gerenciado" pelo contexto JPA,
+      // e o Hibernate gera automaticamente o comando SQL INSERT quando a
+      // transação for confirmada (commit).
 
+      // 🔹 Mantém o total de autores na mesma transação do INSERT.
+      incrementarTotal(1);
+
+      // 🔹 Avisa as estruturas em memória (aplicado somente após o commit).
+      this.eventos.publishEvent(
+          AutorAlteradoEvent.gravado(autor.getId(), autor.getNome(), autor.getSobrenome(), autor.getVersao()));
+    });
   }
 
-  @Transactional(readOnly = false)
+  // 🔹 Insere vários autores (e seus InfoAutor, por cascata) em uma única
+  // transação, usando o batching de JDBC do Hibernate.
+  // A cada "loteEscrita" entidades o contexto é descarregado (flush) e limpo
+  // (clear): os INSERTs acumulados vão ao banco em lote e as entidades já
+  // gravadas deixam de ocupar memória no EntityManager.
+  // O lote inteiro vai para um mesmo shard, para continuar sendo uma única
+  // transação.
+  public void saveAll(List<Autor> autores) {
+
+    this.shards.escrever(this.shards.proximoParaGravar(), () -> {
+      for (int i = 0; i < autores.size(); i++) {
+        Autor autor = autores.get(i);
+        this.manager.persist(autor);
+        this.eventos.publishEvent(
+            AutorAlteradoEvent.gravado(autor.getId(), autor.getNome(), autor.getSobrenome(), autor.getVersao()));
+
+        if ((i + 1) % this.loteEscrita == 0) {
+          this.manager.flush();
+          this.manager.clear();
+        }
+      }
+      // O restante (último lote incompleto) é enviado no commit da transação.
+
+      // Um único UPDATE no contador para o lote inteiro
+      incrementarTotal(autores.size());
+    });
+  }
 
-  public void update(Autor autor) {
-    // O método recebe um objeto Autor que deve ser atualizado no banco de dados.
+  // 🔹 Atualiza nome e sobrenome com um único UPDATE verificado pela versão,
+  // sem ler a linha antes.
+  // Antes era usado merge(), que faz um SELECT do autor e depois um UPDATE de
+  // todas as colunas. Com @Version, a verificação de atualização perdida fica
+  // no próprio UPDATE ("... and versao in (...)").
+  // O InfoAutor não é alterado aqui (ver saveInfoAutor).
+  // O UPDATE vai por EscritaDireta: só este autor sai do cache de segundo
+  // nível.
+  //
+  // "versoes": versões aceitas; null = atualiza qualquer que seja a versão.
+  // Retorna a nova versão (VERSAO_NAO_LIDA quando "versoes" é null), ou null
+  // se o autor não existe. Se o autor existe
+  // em outra versão, lança OptimisticLockException (traduzida pelo Spring
+  // para OptimisticLockingFailureException).
+  public Long update(Autor autor, Collection<Long> versoes) {
+
+    int shard = this.shards.shardDe(autor.getId());
+    if (shard < 0) {
+      return null;
+    }
+
+    return this.shards.escrever(shard, () -> {
+      List<Object> parametros = new ArrayList<>(List.of(autor.getNome(), autor.getSobrenome(), autor.getId()));
+      String sql = "update autores set nome = ?, sobrenome = ?, versao = versao + 1 where id_autor = ?"
+          + condicaoVersoes(versoes, parametros);
+
+      int atualizados = EscritaDireta.executar(this.manager, Autor.class, List.of(autor.getId()), sql,
+          parametros.toArray());
+      Long versao = versaoAposAtualizar(atualizados, autor.getId(), versoes);
+      if (versao != null) {
+          this.eventos.publishEvent(AutorAlteradoEvent.gravado(autor.getId(), autor.getNome(), autor.getSobrenome(),
+              versaoConhecida(versao)));
+      }
+      return versao;
+    });
+  }
 
-    // O EntityManager.merge() faz o seguinte:
-    // - Verifica se o objeto passado já existe no banco (pela chave primária).
-    // - Se existir, atualiza os campos no registro correspondente.
-    // - Se não existir, cria um novo registro (dependendo da regra aplicada).
-    // - Retorna uma cópia gerenciada do objeto (mas aqui não capturamos o retorno).
-    this.manager.merge(autor);
+  // 🔹 Atualização parcial: um único "update autores set ... where id_autor = ?"
+  // só com as colunas informadas, sem ler a linha antes (merge() fazia um
+  // SELECT e depois um UPDATE de todas as colunas).
+  // "versoes" e o retorno seguem as mesmas regras de update().
+  // Só este autor sai do cache de segundo nível; as consultas em cache que
+  // dependem de autores são invalidadas (ver EscritaDireta).
+  public Long updateParcial(Long id, AutorAlteracao alteracao, Collection<Long> versoes) {
+
+    List<String> colunas = new ArrayList<>(3);
+    List<Object> parametros = new ArrayList<>(4);
+    if (alteracao.nome() != null) {
+      colunas.add("nome = ?");
+      parametros.add(alteracao.nome());
+    }
+    if (alteracao.sobrenome() != null) {
+      colunas.add("sobrenome = ?");
+      parametros.add(alteracao.sobrenome());
+    }
+    if (colunas.isEmpty()) {
+      throw new IllegalArgumentException("Nenhum campo para alterar");
+    }
+    colunas.add("versao = versao + 1");
+    parametros.add(id);
+
+    int shard = this.shards.shardDe(id);
+    if (shard < 0) {
+      return null;
+    }
+
+    return this.shards.escrever(shard, () -> {
+      String sql = "update autores set " + String.join(", ", colunas) + " where id_autor = ?"
+          + condicaoVersoes(versoes, parametros);
+
+      int atualizados = EscritaDireta.executar(this.manager, Autor.class, List.of(id), sql, parametros.toArray());
+      Long versao = versaoAposAtualizar(atualizados, id, versoes);
+      if (versao != null) {
+          // null = campo não alterado (o índice de busca mantém o valor anterior)
+        this.eventos.publishEvent(AutorAlteradoEvent.gravado(id, alteracao.nome(), alteracao.sobrenome(),
+            versaoConhecida(versao)));
+      }
+      return versao;
+    });
   }
 
-  @Transactional(readOnly = false)
-  public void delete(Long id) {
+  // 🔹 " and versao in (?, ...)" com as versões aceitas (acrescentadas aos
+  // parâmetros), ou "" quando qualquer versão é aceita (null).
+  private static String condicaoVersoes(Collection<Long> versoes, List<Object> parametros) {
+    if (versoes == null) {
+      return "";
+    }
+    parametros.addAll(versoes);
+    return " and versao in (" + EscritaDireta.marcadores(versoes.size()) + ")";
+  }
 
-    // Obtém uma referência "preguiçosa" (proxy) para a entidade.
-    // getReference() *não* carrega imediatamente o objeto do banco — ele fica no
-    // estado "managed"
-    // assim que o proxy é inicializado. Isso é suficiente para o Hibernate
-    // conseguir removê-lo.
-    Autor autorRef = this.manager.getReference(Autor.class, id);
+  // 🔹 Interpreta o resultado de um UPDATE verificado pela versão.
+  // Só quando nenhuma linha foi atualizada é preciso ir de novo ao banco,
+  // para diferenciar "não existe" (null) de "existe em outra versão"
+  // (OptimisticLockException). Sem versão esperada, a nova versão não é lida
+  // (VERSAO_NAO_LIDA).
+  private Long versaoAposAtualizar(int atualizados, Long id, Collection<Long> versoes) {
+
+    if (atualizados == 0) {
+      if (consultarVersao(id) == null) {
+        return null;
+      }
+      throw new OptimisticLockException("Autor id " + id + " foi alterado por outra transacao");
+    }
+
+    if (versoes == null) {
+      return VERSAO_NAO_LIDA;
+    }
+    // Com uma única versão esperada, a nova versão é conhecida sem consulta
+    if (versoes.size() == 1) {
+      return versoes.iterator().next() + 1;
+    }
+    return consultarVersao(id);
+  }
+
+  // Versão do evento de escrita: null quando não foi lida
+  private static Long versaoConhecida(Long versao) {
+    return versao == VERSAO_NAO_LIDA ? null : versao;
+  }
+
+  // Sem registrar no índice: dentro de uma transação de escrita a versão lida
+  // pode ainda não ter sido confirmada
+  private Long consultarVersao(Long id) {
+
+    List<Long> versao = this.manager.createQuery("select a.versao from Autor a where a.id = :id", Long.class)
+        .setParameter("id", id)
+        .getResultList();
+    return versao.isEmpty() ? null : versao.get(0);
+  }
+
+  // 🔹 Remove o autor e o seu InfoAutor sem carregar entidades.
+  // Antes, getReference() + remove() obrigava o Hibernate a inicializar o proxy
+  // (um SELECT da entidade inteira) para poder aplicar o CascadeType.REMOVE.
+  // Aqui são duas idas ao banco: uma consulta de escalares que trava a linha e
+  // resolve o id_info, e um lote com os dois DELETEs e a baixa no contador
+  // (ver removerPorChaves). Se o autor não existe, nada é escrito e o método
+  // retorna false.
+  // O id_info precisa ser lido antes: a FK vai de autores para info_autores
+  // (não há cascata do autor para o InfoAutor), o MySQL não tem DELETE ...
+  // RETURNING, e o id também é a chave do InfoAutor no cache de segundo nível.
+  public boolean delete(Long id) {
+
+    int shard = this.shards.shardDe(id);
+    if (shard < 0) {
+      return false;
+    }
+
+    return this.shards.escrever(shard, () -> {
+      List<Object[]> chave = this.manager.createQuery(
+          "select a.id, a.infoAutor.id from Autor a where a.id = :id", Object[].class)
+          .setParameter("id", id)
+          .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+          .getResultList();
+
+      return removerPorChaves(chave) > 0;
+    });
+  }
+
+  // 🔹 Remove em massa os autores com os ids informados, junto com seus
+  // InfoAutor. Retorna quantos autores foram removidos.
+  // Nenhuma entidade é carregada: para cada bloco de ids são executados uma
+  // consulta de escalares que trava as linhas (ids existentes e seus id_info)
+  // e um lote com dois DELETEs por conjunto (autores e depois info_autores,
+  // nessa ordem por causa da FK) e a baixa no contador.
+  // Os ids são separados por shard, e cada shard remove os seus em paralelo,
+  // na sua própria transação.
+  public int deleteAllById(Collection<Long> ids) {
+
+    Map<Integer, List<Long>> porShard = new HashMap<>();
+    for (Long id : ids) {
+      int shard = this.shards.shardDe(id);
+      if (shard >= 0) {
+        porShard.computeIfAbsent(shard, s -> new ArrayList<>()).add(id);
+      }
+    }
+
+    return somar(this.shards.escreverEm(porShard.keySet(), shard -> {
+      List<Long> lista = porShard.get(shard);
+      int removidos = 0;
+      for (int i = 0; i < lista.size(); i += LIMITE_IN) {
+        List<Long> bloco = lista.subList(i, Math.min(i + LIMITE_IN, lista.size()));
+
+        List<Object[]> chaves = this.manager.createQuery(
+            "select a.id, a.infoAutor.id from Autor a where a.id in :ids", Object[].class)
+            .setParameter("ids", bloco)
+            .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+            .getResultList();
+
+        removidos += removerPorChaves(chaves);
+      }
+      return removidos;
+    }));
+  }
 
-    // A remoção só pode ser realizada em uma entidade que esteja no estado
-    // "managed".
-    // Como getReference() garante isso (mesmo como proxy), o Hibernate consegue
-    // executar o delete.
-    // this.manager.remove(autorRef);
+  // 🔹 Remove em massa todos os autores cujo cargo contenha o valor informado
+  // (mesmo critério de findByCargo), junto com seus InfoAutor.
+  // Retorna quantos autores foram removidos (somando todos os shards).
+  // Em cada shard, na mesma transação, os pares (id_autor, id_info) são lidos
+  // e removidos em blocos de até LIMITE_IN, até um bloco vir incompleto: a
+  // memória usada é a de um bloco, e não a de todos os autores do cargo. Os
+  // já removidos não aparecem mais na consulta do bloco seguinte.
+  public int deleteAllByCargo(String cargo) {
+
+    String padrao = "%" + normalizarParametro(cargo) + "%";
+    return somar(this.shards.escreverEmTodos(shard -> {
+      int removidos = 0;
+      List<Object[]> chaves;
+      do {
+        chaves = this.manager.createQuery(
+            "select a.id, i.id from Autor a join a.infoAutor i where lower(i.cargo) like :cargo", Object[].class)
+            .setParameter("cargo", padrao)
+            .setMaxResults(LIMITE_IN)
+            .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+            .getResultList();
+        removidos += removerPorChaves(chaves);
+      } while (chaves.size() == LIMITE_IN);
+      return removidos;
+    }));
   }
 
-  // Indica que o método é transacional apenas para leitura (não altera o banco)
-  @Transactional(readOnly = true)
+  // 🔹 Executa os DELETEs por conjunto para pares (id_autor, id_info), lidos
+  // com lock pela consulta que os encontrou: ninguém mais os remove até o
+  // commit, e a baixa no contador é exatamente a quantidade de pares.
+  // Os dois DELETEs e a baixa vão num único lote JDBC, uma ida ao banco (ver
+  // EscritaDireta.executarEmLote). Eles não carregam as entidades e tiram do
+  // cache de segundo nível só os autores e InfoAutor removidos, além de
+  // invalidar o cache de consultas.
+  private int removerPorChaves(List<Object[]> chaves) {
+
+    if (chaves.isEmpty()) {
+      return 0;
+    }
+
+    List<Long> idsAutores = new ArrayList<>(chaves.size());
+    List<Long> idsInfos = new ArrayList<>(chaves.size());
+    for (Object[] chave : chaves) {
+      idsAutores.add((Long) chave[0]);
+      if (chave[1] != null) {
+        idsInfos.add((Long) chave[1]);
+      }
+    }
+
+    // Primeiro os autores: são eles que referenciam info_autores (FK id_info)
+    List<EscritaDireta.Comando> comandos = new ArrayList<>(3);
+    comandos.add(new EscritaDireta.Comando(Autor.class, idsAutores,
+        "delete from autores where id_autor in (" + EscritaDireta.literais(idsAutores) + ")"));
+    if (!idsInfos.isEmpty()) {
+      comandos.add(new EscritaDireta.Comando(InfoAutor.class, idsInfos,
+          "delete from info_autores where id_info in (" + EscritaDireta.literais(idsInfos) + ")"));
+    }
+    comandos.add(new EscritaDireta.Comando(Contador.class, List.of(),
+        "update contadores set valor = valor - " + idsAutores.size()
+            + " where nome = '" + Contador.faixaDaThread(Contador.AUTORES) + "'"));
+
+    int removidos = EscritaDireta.executarEmLote(this.manager, comandos)[0];
+    for (Long id : idsAutores) {
+      this.eventos.publishEvent(AutorAlteradoEvent.removido(id));
+    }
+    return removidos;
+  }
+
+  // Transação apenas de leitura (não altera o banco), no shard do id
   public Autor findById(Long id) {
-    // Busca um Autor pelo ID, utilizando o EntityManager
-    return this.manager.find(Autor.class, id);
+
+    int shard = this.shards.shardDe(id);
+    if (shard < 0) {
+      return null;
+    }
+
+    return this.shards.ler(shard, () -> lerParaOsCaches(() -> {
+      // Busca um Autor pelo ID, utilizando o EntityManager.
+      // O entity graph "Autor.infoAutor" faz o InfoAutor (LAZY por padrão) vir
+      // junto, já que a resposta de GET /autores/{id} sempre o serializa.
+      // Sem o hint readOnly: chamado dentro de uma transação de escrita, o
+      // Autor devolvido precisa continuar com dirty checking (o Hibernate não
+      // grava associações alteradas em entidades somente leitura). Fora dela,
+      // a transação readOnly do Spring já dispensa o snapshot.
+      Autor autor = this.manager.find(Autor.class, id, Map.of(
+          SpecHints.HINT_SPEC_FETCH_GRAPH, this.manager.getEntityGraph(Autor.GRAFO_INFO_AUTOR)));
+
+      // Quando o Autor vem do cache de segundo nível, o entity graph não é
+      // aplicado e o InfoAutor fica como proxy: inicializa aqui (normalmente
+      // também a partir do cache, sem SQL).
+      if (autor != null) {
+        Hibernate.initialize(autor.getInfoAutor());
+        if (podeGuardarNosCaches()) {
+          this.indiceVersoes.registrar(id, autor.getVersao());
+        }
+      }
+      return autor;
+    }));
+  }
+
+  // 🔹 Aplica o teto do servidor, independentemente do que o cliente pediu
+  public static int limitePagina(int limit) {
+    return Math.max(1, Math.min(limit, LIMITE_MAXIMO));
+  }
+
+  // Método apenas de leitura, paginado por cursor (keyset) sobre id_autor.
+  // Em vez de OFFSET (que obriga o banco a percorrer todas as linhas
+  // anteriores), filtramos por "id > after" e usamos o índice da chave
+  // primária: o custo de cada página é o mesmo, por mais fundo que o cliente
+  // navegue.
+  // Devolve resumos (AutorResumo) montados pela própria consulta, sem
+  // carregar entidades.
+  //
+  // Com shards, o número do shard está nos bits altos do id: todos os ids do
+  // shard 0 vêm antes dos do shard 1, e assim por diante. A ordem global por
+  // id é então a concatenação dos shards, e a página é montada percorrendo os
+  // shards a partir do shard do cursor, só até completar "limite + 1" linhas
+  // (em geral uma única consulta, em vez de uma por shard).
+  public Pagina<AutorResumo> findByAll(Long after, int limit) {
+
+    int limite = limitePagina(limit);
+    long cursor = after == null ? 0L : after;
+
+    // Consulta JPQL com ordenação estável pela chave primária.
+    // O cargo vem do InfoAutor pelo mesmo SELECT (left join), sem consultas
+    // extras por autor.
+    String query = """
+        select new com.mbalem.demo_spring_rev_jpa.dto.AutorResumo(a.id, a.nome, a.sobrenome, i.cargo)
+        from Autor a
+        left join a.infoAutor i
+        where a.id > :after
+        order by a.id asc
+        """;
+
+    List<AutorResumo> autores = new ArrayList<>(limite + 1);
+    int primeiro = (int) Math.max(0, Math.min(cursor >>> Shards.BITS_SEQUENCIA, this.shards.quantidade()));
+    for (int shard = primeiro; shard < this.shards.quantidade() && autores.size() <= limite; shard++) {
+      int faltam = limite + 1 - autores.size();
+
+      // Busca uma linha a mais que o limite só para saber se há próxima página
+      autores.addAll(this.shards.ler(shard, () -> somenteLeitura(this.manager.createQuery(query, AutorResumo.class))
+          .setParameter("after", cursor)
+          .setMaxResults(faltam)
+          .getResultList()));
+    }
+
+    return Pagina.de(autores, limite, AutorResumo::id);
   }
 
-  // Método apenas de leitura
-  @Transactional(readOnly = true)
-  public List<Autor> findByAll() {
+  // Método apenas de leitura que percorre TODOS os autores, um de cada vez,
+  // sem materializar a tabela em uma lista.
+  // Cada Autor (já com seu InfoAutor, via join fetch) é entregue ao
+  // "consumidor" e depois descartado do contexto de persistência.
+  // Os shards são lidos um depois do outro (cada um na sua transação
+  // somente leitura), o que já mantém a ordem por id.
+  public void exportAll(Consumer<Autor> consumidor) {
 
-    // Consulta JPQL que seleciona todos os autores da tabela
-    String query = "select a from Autor a"; // JPQL
+    // O join fetch traz o InfoAutor na mesma linha: enquanto o result set está
+    // em modo streaming, a conexão não pode executar outras consultas.
+    String query = """
+        select a from Autor a
+        left join fetch a.infoAutor
+        order by a.id asc
+        """;
 
-    // Executa a consulta, mapeia para a classe Autor e retorna a lista de
-    // resultados
-    return this.manager.createQuery(query, Autor.class).getResultList();
+    for (int shard = 0; shard < this.shards.quantidade(); shard++) {
+      this.shards.ler(shard, () -> {
+        // A exportação não passa pelo cache de segundo nível: guardar a tabela
+        // inteira nele só tiraria de lá os autores mais lidos (e a réplica da
+        // leitura pode estar atrasada, ver lerParaOsCaches)
+        this.manager.setProperty(SpecHints.HINT_SPEC_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+
+        // fetchSize = Integer.MIN_VALUE (padrão de "fetchSizeStreaming") faz o
+        // driver do MySQL trazer as linhas sob demanda (streaming) em vez de
+        // carregar o result set inteiro na memória.
+        // somenteLeitura() evita que o Hibernate guarde snapshots para dirty checking.
+        try (Stream<Autor> autores = somenteLeitura(this.manager.createQuery(query, Autor.class))
+            .setHint(HibernateHints.HINT_FETCH_SIZE, this.fetchSizeStreaming)
+            .getResultStream()) {
+
+          int lidos = 0;
+          for (Autor autor : (Iterable<Autor>) autores::iterator) {
+            consumidor.accept(autor);
+
+            // Descarta periodicamente as entidades já entregues
+            if (++lidos % LOTE_EXPORTACAO == 0) {
+              this.manager.clear();
+            }
+          }
+        }
+        return null;
+      });
+    }
   }
 
-  // Apenas leitura
-  @Transactional(readOnly = true)
-  public List<Autor> findAllByNomeOrSobrenome(String termo) {
+  // Apenas leitura, em todos os shards (ou só nos shards dos candidatos)
+  public List<AutorResumo> findAllByNomeOrSobrenome(String termo) {
 
-    // Consulta JPQL para buscar autores cujo nome OU sobrenome contenham o termo
-    // informado
+    // Normaliza o termo para que variações equivalentes ("Machado", "machado ")
+    // usem a mesma entrada do cache de consultas
+    String normalizado = normalizarParametro(termo);
+
+    List<List<AutorResumo>> porShard = buscarPorNomeOrSobrenome(normalizado);
+    if (porShard.size() == 1) {
+      return porShard.get(0);
+    }
+    List<AutorResumo> autores = new ArrayList<>();
+    porShard.forEach(autores::addAll);
+    return autores;
+  }
+
+  private List<List<AutorResumo>> buscarPorNomeOrSobrenome(String termo) {
+
+    // Primeiro pergunta ao índice de trigramas quais autores PODEM conter o
+    // termo. O índice nunca deixa um autor de fora, mas pode trazer falsos
+    // positivos, por isso os candidatos ainda são conferidos no banco.
+    // Autores gravados por outras instâncias entram no índice na reconstrução
+    // seguinte (ver IndiceTrigramas).
+    Optional<Set<Long>> candidatos = this.indiceBusca.candidatos(termo);
+
+    if (candidatos.isPresent() && candidatos.get().isEmpty()) {
+      return List.of(List.of()); // Nenhum autor tem todos os trigramas do termo
+    }
+
+    if (candidatos.isPresent() && candidatos.get().size() <= LIMITE_CANDIDATOS) {
+      // Confere só os candidatos, buscando-os pela chave primária, cada um no
+      // seu shard
+      String query = SELECT_RESUMO +
+          "where a.id in :ids and (lower(a.nome) like :termo OR lower(a.sobrenome) like :termo)";
+
+      Map<Integer, List<Long>> idsPorShard = new TreeMap<>();
+      for (Long id : candidatos.get()) {
+        int shard = this.shards.shardDe(id);
+        if (shard >= 0) {
+          idsPorShard.computeIfAbsent(shard, s -> new ArrayList<>()).add(id);
+        }
+      }
+      if (idsPorShard.isEmpty()) {
+        return List.of(List.of());
+      }
+
+      return this.shards.lerEm(idsPorShard.keySet(), shard -> lerParaOsCaches(() -> {
+        List<Long> ids = idsPorShard.get(shard);
+        TypedQuery<AutorResumo> consulta = somenteLeitura(this.manager.createQuery(query, AutorResumo.class))
+            .setParameter("ids", ids)
+            .setParameter("termo", "%" + termo + "%");
+        if (ids.size() <= LIMITE_CANDIDATOS_EM_CACHE) {
+          consulta.setHint(HibernateHints.HINT_CACHEABLE, true)
+              .setHint(HibernateHints.HINT_CACHE_REGION, regiaoConsultas(shard));
+        }
+        return consulta.getResultList();
+      }));
+    }
+
+    // Sem índice utilizável (termo curto, índice em construção ou
+    // desatualizado, ou pouco seletivo): consulta JPQL para buscar autores cujo nome OU sobrenome
+    // contenham o termo informado, varrendo a tabela
     // OBS: tem um erro aqui: ": termo" não pode ter espaço. Deve ser ":termo"
-    String query = "select a from Autor a " +
-        "where a.nome like :termo OR a.sobrenome like :termo"; // JPQL corrigida
+    String query = SELECT_RESUMO +
+        "where lower(a.nome) like :termo OR lower(a.sobrenome) like :termo"; // JPQL corrigida
 
     // Cria a query, define o parâmetro com LIKE e executa retornando a lista
-    // filtrada
-    return this.manager.createQuery(query, Autor.class)
+    // filtrada de cada shard
+    return this.shards.lerEmTodos(shard -> lerParaOsCaches(() -> somenteLeitura(this.manager.createQuery(query, AutorResumo.class))
         .setParameter("termo", "%" + termo + "%") // Adiciona wildcards para busca parcial
-        .getResultList();
+        .setHint(HibernateHints.HINT_CACHEABLE, true) // Resultado vai para o cache de consultas
+        .setHint(HibernateHints.HINT_CACHE_REGION, regiaoConsultas(shard))
+        .getResultList()));
   }
 
-  // Apenas leitura
-  @Transactional(readOnly = true)
+  // 🔹 Reconstrói o índice de trigramas a partir de todos os autores gravados.
+  // Lê apenas id, nome e sobrenome (sem criar entidades), em streaming.
+  // Retorna quantos autores foram indexados.
+  // Os shards são lidos um depois do outro, cada um na sua transação; a
+  // reconstrução só é concluída com sucesso se todos foram lidos.
+  public long reconstruirIndiceBusca() {
+
+    if (!this.indiceBusca.iniciarReconstrucao()) {
+      throw new ReconstrucaoEmAndamentoException();
+    }
+
+    boolean sucesso = false;
+    long indexados = 0;
+    long escritasExternas = 0;
+    try {
+      // Lida antes dos autores: escritas de outras instâncias durante a
+      // leitura fazem a próxima verificação pedir uma nova reconstrução
+      escritasExternas = escritasExternasBusca();
+      // O índice não expira: a leitura precisa enxergar todas as escritas
+      // desta instância, nem que tenha que ir ao primário
+      for (int shard = 0; shard < this.shards.quantidade(); shard++) {
+        indexados += this.shards.ler(shard, () -> this.consistencia.lerAtualizado(this::indexarShard));
+      }
+      sucesso = true;
+    } finally {
+      this.indiceBusca.concluirReconstrucao(sucesso, escritasExternas);
+    }
+    return indexados;
+  }
+
+  private long indexarShard() {
+    long indexados = 0;
+    try (Stream<Object[]> linhas = somenteLeitura(this.manager
+        .createQuery("select a.id, a.nome, a.sobrenome from Autor a", Object[].class))
+        .setHint(HibernateHints.HINT_FETCH_SIZE, this.fetchSizeStreaming)
+        .getResultStream()) {
+
+      for (Object[] linha : (Iterable<Object[]>) linhas::iterator) {
+        this.indiceBusca.indexarNaReconstrucao((Long) linha[0], (String) linha[1], (String) linha[2]);
+        indexados++;
+      }
+    }
+    return indexados;
+  }
+
+  // Apenas leitura: soma os contadores de todos os shards, lidos em paralelo
   public Long getTotalElements() {
+    return this.shards.lerEmTodos(shard -> totalDoShard()).stream().mapToLong(Long::longValue).sum();
+  }
+
+  private Long totalDoShard() {
+
+    // Soma as faixas do contador mantido por save/saveAll/delete, lidas pela
+    // chave primária, em vez de "select count(1) from Autor a", que percorre o
+    // índice inteiro
+    String query = "select sum(c.valor) from Contador c where c.nome in :nomes"; // JPQL
+
+    // Executa a consulta e retorna o resultado único (um Long; null sem linhas)
+    Long valor = somenteLeitura(this.manager.createQuery(query, Long.class))
+        .setParameter("nomes", Contador.faixas(Contador.AUTORES))
+        .getSingleResult();
+
+    if (valor != null) {
+      return valor;
+    }
+
+    // Contador ainda não inicializado: conta a tabela
+    return somenteLeitura(this.manager.createQuery("select count(1) from Autor a", Long.class))
+        .getSingleResult();
+  }
+
+  // 🔹 Soma "delta" ao contador de autores (negativo para remoções).
+  // É um UPDATE atômico no banco, então inserções concorrentes não perdem
+  // incrementos, e faz parte da transação de quem chamou: se ela sofrer
+  // rollback, o contador também volta.
+  // Só a faixa da thread é atualizada: escritas concorrentes em threads
+  // diferentes não esperam umas pelas outras no lock da linha.
+  private void incrementarTotal(long delta) {
+    this.manager.createQuery("update Contador c set c.valor = c.valor + :delta where c.nome = :nome")
+        .setParameter("delta", delta)
+        .setParameter("nome", Contador.faixaDaThread(Contador.AUTORES))
+        .executeUpdate();
+  }
+
+  // 🔹 Soma "escritas" à linha desta instância em contadores e devolve a soma
+  // das linhas das outras instâncias (ver IndiceTrigramas e
+  // InicializadorIndiceBusca). As linhas ficam só no shard 0: são um aviso
+  // entre instâncias, não dados dos autores.
+  public long sincronizarEscritasBusca(long escritas) {
+    return this.shards.escrever(0, () -> {
+      if (escritas != 0) {
+        this.manager.createQuery("update Contador c set c.valor = c.valor + :escritas where c.nome = :nome")
+            .setParameter("escritas", escritas)
+            .setParameter("nome", this.indiceBusca.contadorEscritas())
+            .executeUpdate();
+      }
+      return somarEscritasExternas();
+    });
+  }
 
-    // Consulta JPQL que retorna a quantidade total de registros da entidade Autor
-    String query = "select count(1) from Autor a"; // JPQL
+  private long escritasExternasBusca() {
+    return this.shards.ler(0, this::somarEscritasExternas);
+  }
 
-    // Executa a consulta e retorna o resultado único (um Long)
-    return this.manager.createQuery(query, Long.class)
+  private long somarEscritasExternas() {
+    String query = """
+        select coalesce(sum(c.valor), 0) from Contador c
+        where c.nome like :todas and c.nome <> :propria
+        """; // JPQL
+    return somenteLeitura(this.manager.createQuery(query, Long.class))
+        .setParameter("todas", IndiceTrigramas.PREFIXO_CONTADOR + "%")
+        .setParameter("propria", this.indiceBusca.contadorEscritas())
         .getSingleResult();
   }
 
   // 🔹 Indica que este método participa de uma transação de escrita (readOnly =
   // false),
   // pois ele vai modificar dados no banco de dados.
-  @Transactional(readOnly = false)
-  public Autor saveInfoAutor(InfoAutor infoAutor, Long autorId) {
+  //
+  // Grava o InfoAutor do autor como um "upsert", sem carregar o Autor:
+  // - se o autor já tem um InfoAutor, ele é atualizado no lugar (SELECT do
+  //   id_info + UPDATE verificado pela versão);
+  // - se não tem, a versão do autor é incrementada primeiro (o que trava a
+  //   linha), e só então o InfoAutor é inserido e ligado a ele (SELECT do
+  //   id_info + UPDATE da versão + INSERT + UPDATE da FK).
+  // Antes, cada chamada inseria um InfoAutor novo e deixava o anterior órfão
+  // em info_autores.
+  // Nos dois casos a versão do autor também é incrementada, já que o
+  // InfoAutor faz parte da resposta (e do ETag) de GET /autores/{id}.
+  // "versoes": versões aceitas do autor (If-Match); null = qualquer versão.
+  // Retorna o InfoAutor gravado (com o id), ou null se o autor não existe. Se
+  // o autor está em outra versão, lança OptimisticLockException.
+  // O InfoAutor fica no mesmo shard do autor (a FK é local a cada banco).
+  public InfoAutor saveInfoAutor(InfoAutor infoAutor, Long autorId, Collection<Long> versoes) {
+
+    int shard = this.shards.shardDe(autorId);
+    if (shard < 0) {
+      return null;
+    }
+    return this.shards.escrever(shard, () -> gravarInfoAutor(infoAutor, autorId, versoes));
+  }
+
+  private InfoAutor gravarInfoAutor(InfoAutor infoAutor, Long autorId, Collection<Long> versoes) {
 
-    // 🔹 Busca o Autor pelo ID informado.
-    // O findById retorna a entidade gerenciada pelo EntityManager,
-    // permitindo que o Hibernate detecte alterações automaticamente (dirty
-    // checking).
-    Autor autor = findById(autorId);
+    // 🔹 Só as versões do autor e do InfoAutor atual, e o id_info, como
+    // escalares.
+    List<Object[]> encontrado = this.manager.createQuery(
+        "select a.versao, a.infoAutor.id, i.versao from Autor a left join a.infoAutor i where a.id = :id",
+        Object[].class)
+        .setParameter("id", autorId)
+        .getResultList();
+
+    if (encontrado.isEmpty()) {
+      return null;
+    }
+
+    Long versaoAutor = (Long) encontrado.get(0)[0];
+    if (versoes != null && !versoes.contains(versaoAutor)) {
+      throw new OptimisticLockException("Autor id " + autorId + " foi alterado por outra transacao");
+    }
+    Long idInfo = (Long) encontrado.get(0)[1];
+    if (idInfo != null) {
+      Long versao = (Long) encontrado.get(0)[2];
+      int atualizados = EscritaDireta.executar(this.manager, InfoAutor.class, List.of(idInfo), """
+          update info_autores
+          set cargo = ?, bio = ?, versao = versao + 1
+          where id_info = ? and versao = ?
+          """, infoAutor.getCargo(), infoAutor.getBio(), idInfo, versao);
+      if (atualizados == 0) {
+        throw new OptimisticLockException("InfoAutor id " + idInfo + " foi alterado por outra transacao");
+      }
+      incrementarVersao(autorId, versaoAutor);
+
+      infoAutor.setId(idInfo);
+      infoAutor.setVersao(versao + 1);
+      return infoAutor;
+    }
+
+    // 🔹 Primeiro o UPDATE verificado da versão do autor: ele trava a linha
+    // até o commit, então de duas gravações concorrentes para um autor sem
+    // InfoAutor a segunda falha aqui (OptimisticLockException) antes de
+    // inserir o seu, em vez de deixar um dos dois órfão em info_autores.
+    incrementarVersao(autorId, versaoAutor);
+
+    // 🔹 O INSERT precisa chegar ao banco antes do UPDATE que aponta a FK
+    // do autor para ele.
+    infoAutor.setId(null);
+    infoAutor.setVersao(null);
+    this.manager.persist(infoAutor);
+    this.manager.flush();
+
+    EscritaDireta.executar(this.manager, Autor.class, List.of(autorId),
+        "update autores set id_info = ? where id_autor = ?", infoAutor.getId(), autorId);
+    return infoAutor;
+  }
 
-    // 🔹 Associa o objeto InfoAutor ao Autor encontrado.
-    // Como o Autor está em estado "managed", o Hibernate persistirá essa alteração
-    // ao final da transação sem precisar de um merge manual.
-    autor.setInfoAutor(infoAutor);
+  // 🔹 Incrementa a versão do autor, desde que ele ainda esteja na versão lida
+  // por saveInfoAutor. Assim a nova versão é conhecida sem outra consulta.
+  private void incrementarVersao(Long autorId, Long versaoAtual) {
 
-    // 🔹 Retorna o autor atualizado.
-    // A alteração somente será aplicada no banco após o commit da transação.
-    return autor;
+    if (EscritaDireta.executar(this.manager, Autor.class, List.of(autorId),
+        "update autores set versao = versao + 1 where id_autor = ? and versao = ?", autorId, versaoAtual) == 0) {
+      throw new OptimisticLockException("Autor id " + autorId + " foi alterado por outra transacao");
+    }
+
+    // Nome e sobrenome não mudaram (null); só a versão
+    this.eventos.publishEvent(AutorAlteradoEvent.gravado(autorId, null, null, versaoAtual + 1));
   }
 
-  // 🔹 Indica que o método é somente leitura.
+  // 🔹 Executa em transações somente leitura, uma por shard, em paralelo.
   // Melhora performance, evita locks desnecessários e informa ao Hibernate
   // que não haverá alterações na base.
-  @Transactional(readOnly = true)
-  public List<Autor> findByCargo(String cargo) {
+  // As listas dos shards são juntadas e ordenadas aqui (ver ORDEM_CARGO).
+  public List<AutorResumo> findByCargo(String cargo) {
+
+    List<AutorResumo> autores = new ArrayList<>();
+    this.shards.lerEmTodos(shard -> lerParaOsCaches(() -> buscarPorCargo(cargo, shard))).forEach(autores::addAll);
+    autores.sort(ORDEM_CARGO);
+    return autores;
+  }
+
+  private List<AutorResumo> buscarPorCargo(String cargo, int shard) {
 
     // 🔹 Cria uma consulta JPQL usando multiline-string (text block).
     // A consulta busca autores cujo cargo (dentro de InfoAutor)
     // contenha o valor informado no parâmetro.
+    // O cargo do resumo vem do mesmo join usado no filtro.
     String query = """
-        select a from Autor a
-        where a.infoAutor.cargo like :cargo
-        order by a.nome asc
+        select new com.mbalem.demo_spring_rev_jpa.dto.AutorResumo(a.id, a.nome, a.sobrenome, i.cargo)
+        from Autor a
+        join a.infoAutor i
+        where lower(i.cargo) like :cargo
         """;
 
-    // 🔹 Cria e executa a consulta, retornando uma lista de Autores.
+    // 🔹 Cria e executa a consulta, retornando uma lista de resumos.
     // O parâmetro "cargo" é convertido para um padrão de busca usando LIKE (%...%).
-    return this.manager.createQuery(query, Autor.class)
-        .setParameter("cargo", "%" + cargo + "%") // 🔹 Adiciona wildcard para busca parcial
+    // 🔹 O resultado fica no cache de consultas, indexado pelo cargo
+    // normalizado: filtros repetidos não voltam ao banco até que uma escrita
+    // em "autores" ou "info_autores" invalide a entrada.
+    return somenteLeitura(this.manager.createQuery(query, AutorResumo.class))
+        .setParameter("cargo", "%" + normalizarParametro(cargo) + "%") // 🔹 Adiciona wildcard para busca parcial
+        .setHint(HibernateHints.HINT_CACHEABLE, true)
+        .setHint(HibernateHints.HINT_CACHE_REGION, regiaoConsultas(shard))
         .getResultList(); // 🔹 Executa a query e retorna os resultados
   }
+
+  // 🔹 Leitura cujo resultado vai para os caches locais (segundo nível, cache
+  // de consultas, IndiceVersoes), chamada dentro da transação do shard.
+  // Com as leituras nas réplicas, a conexão só vai para uma réplica que já
+  // enxerga a última escrita desta instância se alguma enxerga; se nenhuma,
+  // ela pode ir a uma atrasada, e então nada do que ela carrega é guardado
+  // (CacheStoreMode.BYPASS), para que um dado anterior a uma escrita não volte
+  // para o cache que a escrita acabou de esvaziar.
+  private <T> T lerParaOsCaches(Supplier<T> tarefa) {
+    return this.consistencia.ler(() -> {
+      if (!podeGuardarNosCaches()) {
+        this.manager.setProperty(SpecHints.HINT_SPEC_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+      }
+      return tarefa.get();
+    });
+  }
+
+  // Dentro de uma transação de escrita a conexão é a do primário
+  private boolean podeGuardarNosCaches() {
+    return this.consistencia.preencheCaches() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+  }
+
+  // 🔹 Região do cache de consultas do shard: a chave de uma consulta em cache
+  // não inclui o banco, então shards diferentes não podem dividir a região.
+  private static String regiaoConsultas(int shard) {
+    return shard == 0 ? REGIAO_CONSULTAS : REGIAO_CONSULTAS + "_" + shard;
+  }
+
+  // 🔹 Somas de resultados por shard (por exemplo, autores removidos).
+  private static int somar(List<Integer> porShard) {
+    return porShard.stream().mapToInt(Integer::intValue).sum();
+  }
+
+  // 🔹 Remove espaços nas pontas e passa para minúsculas, para que a chave do
+  // cache de consultas seja única para termos equivalentes.
+  // As consultas comparam com lower(coluna), então o resultado não depende da
+  // collation do banco; como o LIKE com curinga inicial já não usa índice,
+  // o lower() não tira nenhum índice de uso.
+  private static String normalizarParametro(String valor) {
+    return valor.strip().toLowerCase(Locale.ROOT);
+  }
+
+  // 🔹 Marca uma consulta dos métodos de leitura como somente leitura:
+  // - HINT_READ_ONLY: as entidades carregadas não ganham cópia do estado
+  //   (snapshot) para dirty checking, economizando memória e CPU por linha;
+  // - FlushMode.MANUAL: a consulta não dispara a verificação de alterações
+  //   pendentes (auto-flush) antes de executar.
+  // Numa transação @Transactional(readOnly = true) o Spring já deixa a sessão
+  // assim e chama Connection.setReadOnly(true); os hints garantem o mesmo
+  // comportamento quando o método é chamado dentro de uma transação de
+  // escrita.
+  private static <T> TypedQuery<T> somenteLeitura(TypedQuery<T> query) {
+    return query
+        .setHint(HibernateHints.HINT_READ_ONLY, true)
+        .setHint(HibernateHints.HINT_FLUSH_MODE, FlushMode.MANUAL);
+  }
 }
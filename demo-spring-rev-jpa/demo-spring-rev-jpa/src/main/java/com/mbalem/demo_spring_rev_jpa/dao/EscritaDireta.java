@@ -0,0 +1,129 @@
+package com.mbalem.demo_spring_rev_jpa.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+
+import jakarta.persistence.EntityManager;
+
+// 🔹 UPDATE/DELETE em SQL que invalida no cache de segundo nível só as
+// entidades alteradas.
+//
+// Um UPDATE/DELETE em JPQL (ou SQL nativo pelo Hibernate, mesmo com
+// addSynchronizedEntityClass/QuerySpace) esvazia a região inteira da
+// entidade: cada escrita de um autor tirava todos os autores do cache.
+// Aqui o comando vai pela conexão JDBC da sessão, e o Hibernate não faz essa
+// limpeza. No lugar dela, cada id informado é travado no cache (READ_WRITE)
+// antes do comando e liberado depois do fim da transação, como o Hibernate
+// faz ao remover uma entidade: até lá, e logo após, as leituras vão ao banco.
+// As consultas em cache que leem a tabela também são invalidadas (timestamps),
+// como no JPQL.
+//
+// "ids" precisa conter todas as linhas que o comando pode alterar.
+final class EscritaDireta {
+
+  // 🔹 Comando de executarEmLote(), sem parâmetros: os valores vão no próprio
+  // SQL, então só números e textos gerados pela aplicação.
+  record Comando(Class<?> entidade, Collection<Long> ids, String sql) {
+  }
+
+  private EscritaDireta() {
+  }
+
+  static int executar(EntityManager manager, Class<?> entidade, Collection<Long> ids, String sql,
+      Object... parametros) {
+
+    SessionImplementor sessao = manager.unwrap(SessionImplementor.class);
+    travar(sessao, entidade, ids);
+
+    return sessao.doReturningWork(conexao -> {
+      try (PreparedStatement comando = conexao.prepareStatement(sql)) {
+        for (int i = 0; i < parametros.length; i++) {
+          comando.setObject(i + 1, parametros[i]);
+        }
+        return comando.executeUpdate();
+      }
+    });
+  }
+
+  // 🔹 Vários comandos num único lote JDBC: com rewriteBatchedStatements=true
+  // (na URL) o driver do MySQL os envia juntos, numa só ida ao banco, em vez
+  // de uma por comando. Devolve as linhas alteradas por cada comando.
+  static int[] executarEmLote(EntityManager manager, List<Comando> comandos) {
+
+    SessionImplementor sessao = manager.unwrap(SessionImplementor.class);
+    for (Comando comando : comandos) {
+      travar(sessao, comando.entidade(), comando.ids());
+    }
+
+    return sessao.doReturningWork(conexao -> {
+      try (Statement lote = conexao.createStatement()) {
+        for (Comando comando : comandos) {
+          lote.addBatch(comando.sql());
+        }
+        return lote.executeBatch();
+      }
+    });
+  }
+
+  // Trava no cache os ids e invalida as consultas em cache da entidade, com a
+  // liberação registrada para depois do fim da transação
+  private static void travar(SessionImplementor sessao, Class<?> entidade, Collection<Long> ids) {
+
+    SessionFactoryImplementor fabrica = sessao.getFactory();
+    EntityPersister persister = fabrica.getMappingMetamodel().getEntityDescriptor(entidade);
+
+    // Alterações pendentes no contexto vão antes, como no auto flush do JPQL
+    sessao.flush();
+
+    String[] espacos = persister.getPropertySpaces();
+    TimestampsCache timestamps = fabrica.getCache().getTimestampsCache();
+    timestamps.preInvalidate(espacos, sessao);
+
+    EntityDataAccess cache = persister.canWriteToCache() ? persister.getCacheAccessStrategy() : null;
+    List<Object> chaves = new ArrayList<>();
+    List<SoftLock> travas = new ArrayList<>();
+    if (cache != null) {
+      for (Long id : ids) {
+        Object chave = cache.generateCacheKey(id, persister, fabrica, sessao.getTenantIdentifier());
+        chaves.add(chave);
+        travas.add(cache.lockItem(sessao, chave, null));
+      }
+    }
+
+    sessao.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (sucesso, s) -> {
+      for (int i = 0; i < chaves.size(); i++) {
+        cache.unlockItem(s, chaves.get(i), travas.get(i));
+      }
+      timestamps.invalidate(espacos, s);
+    });
+  }
+
+  // 🔹 "?, ?, ..." para um "in (...)" com a quantidade informada.
+  static String marcadores(int quantidade) {
+    return String.join(", ", Collections.nCopies(quantidade, "?"));
+  }
+
+  // 🔹 "1, 2, ..." com os ids, para um "in (...)" de executarEmLote().
+  static String literais(Collection<Long> ids) {
+    StringBuilder lista = new StringBuilder(ids.size() * 8);
+    for (Long id : ids) {
+      if (lista.length() > 0) {
+        lista.append(", ");
+      }
+      lista.append(id.longValue());
+    }
+    return lista.toString();
+  }
+}
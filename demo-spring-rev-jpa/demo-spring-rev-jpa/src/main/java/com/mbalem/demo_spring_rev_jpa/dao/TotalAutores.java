@@ -0,0 +1,72 @@
+package com.mbalem.demo_spring_rev_jpa.dao;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// 🔹 Fornece o total de autores para GET /autores/total.
+//
+// Modo exato (padrão): lê o contador mantido pelo AutorDao a cada chamada
+// (uma leitura por chave primária).
+// Modo aproximado (autores.total.aproximado=true): guarda o último valor lido
+// em memória e só volta ao banco quando ele fica mais velho que
+// "autores.total.defasagem-maxima". Painéis que consultam o total o tempo todo
+// deixam de usar uma conexão por chamada.
+@Component
+public class TotalAutores {
+
+  private final AutorDao dao;
+
+  private final boolean aproximado;
+
+  private final long defasagemMaximaNanos;
+
+  // Garante que só uma thread por vez vá ao banco para renovar o valor
+  private final ReentrantLock renovacao = new ReentrantLock();
+
+  private volatile Leitura ultima;
+
+  private record Leitura(long valor, long instanteNanos) {
+  }
+
+  public TotalAutores(AutorDao dao,
+      @Value("${autores.total.aproximado:false}") boolean aproximado,
+      @Value("${autores.total.defasagem-maxima:5s}") Duration defasagemMaxima) {
+    this.dao = dao;
+    this.aproximado = aproximado;
+    this.defasagemMaximaNanos = defasagemMaxima.toNanos();
+  }
+
+  public long total() {
+    if (!aproximado) {
+      return dao.getTotalElements();
+    }
+
+    Leitura leitura = ultima;
+    if (leitura != null && System.nanoTime() - leitura.instanteNanos() < defasagemMaximaNanos) {
+      return leitura.valor();
+    }
+
+    // Valor vencido: uma thread renova; as demais devolvem o valor anterior
+    // em vez de irem todas ao banco ao mesmo tempo
+    if (leitura != null && !renovacao.tryLock()) {
+      return leitura.valor();
+    }
+    if (leitura == null) {
+      renovacao.lock();
+    }
+    try {
+      Leitura atual = ultima;
+      if (atual != null && System.nanoTime() - atual.instanteNanos() < defasagemMaximaNanos) {
+        return atual.valor();
+      }
+      long valor = dao.getTotalElements();
+      ultima = new Leitura(valor, System.nanoTime());
+      return valor;
+    } finally {
+      renovacao.unlock();
+    }
+  }
+}
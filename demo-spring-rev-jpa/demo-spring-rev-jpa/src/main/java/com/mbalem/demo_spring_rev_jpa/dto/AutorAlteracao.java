@@ -0,0 +1,11 @@
+package com.mbalem.demo_spring_rev_jpa.dto;
+
+// 🔹 Corpo do PATCH /autores/{id}: só os campos que o cliente quer alterar.
+// Um campo ausente no JSON (ou null) não é alterado; o DAO monta o UPDATE
+// apenas com as colunas informadas.
+public record AutorAlteracao(String nome, String sobrenome) {
+
+  public boolean vazia() {
+    return nome == null && sobrenome == null;
+  }
+}
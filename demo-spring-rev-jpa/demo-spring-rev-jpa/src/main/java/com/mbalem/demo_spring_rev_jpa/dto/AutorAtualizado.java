@@ -0,0 +1,8 @@
+package com.mbalem.demo_spring_rev_jpa.dto;
+
+// 🔹 Resposta de PUT /autores: só os campos que o UPDATE grava (nome e
+// sobrenome) e a nova versão (null quando o PUT não informou a versão
+// esperada e ela não foi lida). O InfoAutor enviado no JSON é ignorado pela
+// atualização (ver PUT /autores/{id}/info), então não volta na resposta.
+public record AutorAtualizado(Long id, String nome, String sobrenome, Long versao) {
+}
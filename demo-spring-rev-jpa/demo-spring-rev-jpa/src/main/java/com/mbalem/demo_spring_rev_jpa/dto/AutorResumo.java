@@ -0,0 +1,10 @@
+package com.mbalem.demo_spring_rev_jpa.dto;
+
+// 🔹 Resumo de um autor devolvido pelos endpoints de listagem e busca.
+// É montado direto pela consulta JPQL ("select new ...AutorResumo(...)"):
+// o Hibernate lê só estas colunas e não cria entidades gerenciadas, então não
+// há snapshot para dirty checking nem objetos presos no contexto de
+// persistência só para virarem JSON.
+// "cargo" vem do InfoAutor e é null quando o autor não tem um.
+public record AutorResumo(Long id, String nome, String sobrenome, String cargo) {
+}
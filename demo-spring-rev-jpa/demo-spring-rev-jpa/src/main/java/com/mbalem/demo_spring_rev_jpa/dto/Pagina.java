@@ -0,0 +1,23 @@
+package com.mbalem.demo_spring_rev_jpa.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+// 🔹 Uma página de resultados da paginação por cursor (keyset).
+// "itens" traz os registros da página e "proximoCursor" é o valor que o
+// cliente deve enviar em "?after=" para buscar a página seguinte.
+// Quando "proximoCursor" é null, não há mais registros.
+public record Pagina<T>(List<T> itens, Long proximoCursor) {
+
+  // 🔹 Monta a página a partir de uma consulta que buscou "limite + 1" linhas.
+  // A linha extra só serve para saber se existe uma próxima página; ela é
+  // descartada e o cursor passa a ser a chave do último item devolvido.
+  public static <T> Pagina<T> de(List<T> encontrados, int limite, Function<T, Long> chave) {
+    if (encontrados.size() <= limite) {
+      return new Pagina<>(encontrados, null);
+    }
+
+    List<T> itens = encontrados.subList(0, limite);
+    return new Pagina<>(itens, chave.apply(itens.get(limite - 1)));
+  }
+}
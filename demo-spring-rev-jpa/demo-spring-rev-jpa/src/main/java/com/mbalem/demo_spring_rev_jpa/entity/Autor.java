@@ -3,6 +3,11 @@ package com.mbalem.demo_spring_rev_jpa.entity;
 import java.io.Serializable;
 import jakarta.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.mbalem.demo_spring_rev_jpa.shard.IdPorShard;
+
 // 🔹 @Entity → indica que esta classe é uma entidade JPA, ou seja,
 //    será mapeada para uma tabela no banco de dados.
 @Entity
@@ -11,15 +16,33 @@ import jakarta.persistence.*;
 // que será usada para armazenar os dados desta entidade.
 // Caso não fosse definido, o Hibernate usaria o nome da classe ("autor").
 @Table(name = "autores")
+
+// 🔹 @Cache → guarda os autores no cache de segundo nível do Hibernate
+// (região "autores", configurada em application.conf), compartilhado entre
+// as requisições. READ_WRITE mantém o cache coerente com save/update/delete:
+// a entrada é bloqueada durante a transação e atualizada no commit.
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "autores")
+
+// 🔹 @NamedEntityGraph → plano de busca que carrega o InfoAutor junto com o
+// Autor. Usado em AutorDao.findById; as consultas de listagem usam
+// "join fetch" com o mesmo efeito.
+@NamedEntityGraph(name = Autor.GRAFO_INFO_AUTOR, attributeNodes = @NamedAttributeNode("infoAutor"))
 public class Autor implements Serializable {
 
+  // 🔹 Nome do entity graph que inclui o InfoAutor.
+  public static final String GRAFO_INFO_AUTOR = "Autor.infoAutor";
+
   // 🔹 @Id → marca o campo como a chave primária da tabela.
   @Id
 
-  // 🔹 @GeneratedValue → define a estratégia de geração automática do ID.
-  // GenerationType.IDENTITY indica que o banco de dados é responsável por
-  // gerar o valor (exemplo: auto_increment no MySQL).
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  // 🔹 @IdPorShard → define a estratégia de geração automática do ID.
+  // Como um TableGenerator com otimizador "pooled", reserva blocos de
+  // "tamanhoBloco" ids de uma vez na tabela "id_geradores": o Hibernate
+  // conhece o id antes do INSERT, então pode agrupar INSERTs em lote
+  // (com IDENTITY cada persist precisava ir ao banco na hora para ler o
+  // auto_increment gerado).
+  // O id também traz o shard em que o autor foi gravado (ver Shards).
+  @IdPorShard(sequencia = "autores", tamanhoBloco = 1000)
 
   // 🔹 @Column → personaliza o mapeamento da coluna.
   // name = "id_autor" → nome da coluna no banco.
@@ -37,10 +60,23 @@ public class Autor implements Serializable {
   @Column(name = "sobrenome", length = 45, nullable = false)
   private String sobrenome;
 
-  @OneToOne(cascade = { CascadeType.PERSIST, CascadeType.REMOVE })
+  // 🔹 LAZY → o InfoAutor só é carregado quando a consulta pede (join fetch ou
+  // entity graph). No padrão EAGER do @OneToOne, o Hibernate fazia um SELECT
+  // extra em info_autores para cada autor de uma lista (problema N+1).
+  @OneToOne(fetch = FetchType.LAZY, cascade = { CascadeType.PERSIST, CascadeType.REMOVE })
   @JoinColumn(name = "id_info")
   private InfoAutor infoAutor;
 
+  // 🔹 @Version → versão da linha para controle de concorrência otimista.
+  // Todo UPDATE incrementa a versão e só é aplicado se a versão no banco for a
+  // esperada; caso contrário, outra transação alterou o autor no meio do
+  // caminho (atualização perdida) e o UPDATE não afeta nenhuma linha.
+  // Também é a base do ETag de GET /autores/{id}: por isso alterações no
+  // InfoAutor do autor também incrementam a versão do autor.
+  @Version
+  @Column(name = "versao", nullable = false)
+  private Long versao;
+
   // Métodos getters e setters — usados pelo Hibernate para ler e escrever
   // valores.
   public Long getId() {
@@ -75,6 +111,14 @@ public class Autor implements Serializable {
     this.infoAutor = infoAutor;
   }
 
+  public Long getVersao() {
+    return versao;
+  }
+
+  public void setVersao(Long versao) {
+    this.versao = versao;
+  }
+
   // hashCode, equals e toString não são específicos do Spring,
   // mas são importantes para o Hibernate comparar entidades corretamente.
 }
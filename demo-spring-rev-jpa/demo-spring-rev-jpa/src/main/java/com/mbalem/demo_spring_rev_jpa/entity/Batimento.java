@@ -0,0 +1,46 @@
+package com.mbalem.demo_spring_rev_jpa.entity;
+
+import java.io.Serializable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// 🔹 Batimento de cada instância da aplicação, gravado no primário e lido nas
+// réplicas para saber até onde elas já replicaram.
+// "instante" é o relógio da instância (microssegundos) no começo da última
+// gravação do batimento: uma réplica que enxerga instante > t já aplicou
+// todas as escritas que essa instância confirmou até t.
+@Entity
+@Table(name = "batimentos")
+public class Batimento implements Serializable {
+
+  @Id
+  @Column(name = "instancia", length = 36, nullable = false)
+  private String instancia;
+
+  @Column(name = "instante", nullable = false)
+  private Long instante;
+
+  public String getInstancia() {
+    return instancia;
+  }
+
+  public void setInstancia(String instancia) {
+    this.instancia = instancia;
+  }
+
+  public Long getInstante() {
+    return instante;
+  }
+
+  public void setInstante(Long instante) {
+    this.instante = instante;
+  }
+
+  @Override
+  public String toString() {
+    return "Batimento [instancia=" + instancia + ", instante=" + instante + "]";
+  }
+}
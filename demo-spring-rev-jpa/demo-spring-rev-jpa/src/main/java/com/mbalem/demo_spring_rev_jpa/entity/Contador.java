@@ -0,0 +1,76 @@
+package com.mbalem.demo_spring_rev_jpa.entity;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// 🔹 Contador mantido na mesma transação das escritas que ele conta.
+// Cada linha da tabela "contadores" guarda parte do total de registros de uma
+// tabela, para que o total seja lido pela chave primária em vez de um
+// count(1) que percorre o índice inteiro.
+//
+// O total é dividido em FAIXAS linhas ("autores", "autores#1", ...,
+// "autores#15") e lido como a soma delas. Com uma linha só, toda inserção e
+// remoção atualizava a mesma linha e esperava pelo lock dela até o commit da
+// escrita anterior; assim, cada escrita atualiza só a faixa da sua thread.
+// A primeira faixa tem o nome do contador, então a linha de antes da divisão
+// continua valendo.
+@Entity
+@Table(name = "contadores")
+public class Contador implements Serializable {
+
+  // 🔹 Nome do contador usado para a tabela "autores".
+  public static final String AUTORES = "autores";
+
+  // 🔹 Quantidade de linhas (faixas) de cada contador.
+  public static final int FAIXAS = 16;
+
+  // 🔹 Nome da linha da faixa: a faixa 0 é o próprio nome do contador.
+  public static String faixa(String nome, int faixa) {
+    return faixa == 0 ? nome : nome + "#" + faixa;
+  }
+
+  // 🔹 Nomes das linhas de todas as faixas do contador.
+  public static List<String> faixas(String nome) {
+    return IntStream.range(0, FAIXAS).mapToObj(faixa -> faixa(nome, faixa)).toList();
+  }
+
+  // 🔹 Faixa usada pelas escritas da thread atual. Uma transação fica sempre
+  // na mesma faixa (não há duas linhas travadas em ordens diferentes).
+  public static String faixaDaThread(String nome) {
+    return faixa(nome, (int) Math.floorMod(Thread.currentThread().threadId(), (long) FAIXAS));
+  }
+
+  @Id
+  @Column(name = "nome", length = 45, nullable = false)
+  private String nome;
+
+  @Column(name = "valor", nullable = false)
+  private Long valor;
+
+  public String getNome() {
+    return nome;
+  }
+
+  public void setNome(String nome) {
+    this.nome = nome;
+  }
+
+  public Long getValor() {
+    return valor;
+  }
+
+  public void setValor(Long valor) {
+    this.valor = valor;
+  }
+
+  @Override
+  public String toString() {
+    return "Contador [nome=" + nome + ", valor=" + valor + "]";
+  }
+}
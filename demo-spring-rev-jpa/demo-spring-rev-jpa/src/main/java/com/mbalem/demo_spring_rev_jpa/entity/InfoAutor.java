@@ -2,21 +2,30 @@ package com.mbalem.demo_spring_rev_jpa.entity;
 
 import java.io.Serializable;
 
+import com.mbalem.demo_spring_rev_jpa.shard.IdPorShard;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Generated;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
 @Table(name = "info_autores")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "info_autores")
+// Ignora os campos internos do proxy do Hibernate caso um InfoAutor ainda não
+// carregado (LAZY) seja serializado
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 
 public class InfoAutor implements Serializable {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  // Gravado no mesmo shard do autor (na mesma transação)
+  @IdPorShard(sequencia = "info_autores", tamanhoBloco = 1000)
   @Column(name = "id_info", nullable = false)
   private Long id;
 
@@ -26,6 +35,11 @@ public class InfoAutor implements Serializable {
   @Column(name = "bio", length = 255, nullable = true)
   private String bio;
 
+  // Versão para controle de concorrência otimista (incrementada a cada UPDATE)
+  @Version
+  @Column(name = "versao", nullable = false)
+  private Long versao;
+
   @Override
   public int hashCode() {
     final int prime = 31;
@@ -67,6 +81,14 @@ public class InfoAutor implements Serializable {
     this.bio = bio;
   }
 
+  public Long getVersao() {
+    return versao;
+  }
+
+  public void setVersao(Long versao) {
+    this.versao = versao;
+  }
+
   public Long getId() {
     return id;
   }
@@ -0,0 +1,218 @@
+package com.mbalem.demo_spring_rev_jpa.ingestao;
+
+import com.mbalem.demo_spring_rev_jpa.config.ConsistenciaLeitura;
+import com.mbalem.demo_spring_rev_jpa.dao.AutorDao;
+import com.mbalem.demo_spring_rev_jpa.entity.Autor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+// 🔹 Ingestão assíncrona de autores (POST /autores?assincrono=true).
+//
+// Cada requisição só coloca o autor em uma fila limitada em memória e recebe
+// um código de rastreio (202). Uma única thread gravadora esvazia a fila em
+// lotes: espera o primeiro autor, junta os que chegarem em até
+// "espera-maxima" (ou até "lote-maximo") e grava o lote inteiro com
+// AutorDao.saveAll, em uma transação. Em rajadas, N requisições viram N/lote
+// commits (menos fsync no banco e menos idas e voltas).
+//
+// A fila é desta instância e fica em memória: o que ainda não foi gravado se
+// perde se o processo cair. No desligamento normal, a fila é esvaziada antes
+// de o banco ser fechado.
+//
+// A situação de cada pedido também fica só na instância que o recebeu, por
+// até "retencao" e limitada a "situacoes-maximo" pedidos. Atrás de um
+// balanceador de carga, GET /autores/ingestao/{rastreio} precisa chegar à
+// mesma instância do POST (afinidade de sessão); em outra instância a
+// resposta é 404.
+@Component
+public class FilaIngestao implements SmartLifecycle {
+
+  private static final Logger log = LoggerFactory.getLogger(FilaIngestao.class);
+
+  private record Pedido(String rastreio, Autor autor) {
+  }
+
+  private final AutorDao dao;
+
+  private final ConsistenciaLeitura consistencia;
+
+  private final BlockingQueue<Pedido> fila;
+
+  private final int loteMaximo;
+
+  private final long esperaMaximaNanos;
+
+  // Situação de cada pedido, mantida por "retencao" depois da última mudança
+  // (ou até ser descartada por passar de "situacoes-maximo")
+  private final Cache<String, StatusIngestao> situacoes;
+
+  private volatile boolean ativa = false;
+
+  private Thread gravadora;
+
+  public FilaIngestao(AutorDao dao, ConsistenciaLeitura consistencia,
+      @Value("${autores.ingestao.capacidade:10000}") int capacidade,
+      @Value("${autores.ingestao.lote-maximo:500}") int loteMaximo,
+      @Value("${autores.ingestao.espera-maxima:20ms}") Duration esperaMaxima,
+      @Value("${autores.ingestao.retencao:10m}") Duration retencao,
+      @Value("${autores.ingestao.situacoes-maximo:100000}") long situacoesMaximo) {
+    this.dao = dao;
+    this.consistencia = consistencia;
+    this.fila = new ArrayBlockingQueue<>(capacidade);
+    this.loteMaximo = loteMaximo;
+    this.esperaMaximaNanos = esperaMaxima.toNanos();
+    this.situacoes = Caffeine.newBuilder()
+        .maximumSize(situacoesMaximo)
+        .expireAfterWrite(retencao)
+        .build();
+  }
+
+  // 🔹 Coloca o autor na fila e devolve o código de rastreio, ou null se a
+  // fila está cheia (ou a aplicação está desligando).
+  public String enfileirar(Autor autor) {
+    if (!ativa) {
+      return null;
+    }
+    String rastreio = UUID.randomUUID().toString();
+    situacoes.put(rastreio, StatusIngestao.pendente(rastreio));
+    if (!fila.offer(new Pedido(rastreio, autor))) {
+      situacoes.invalidate(rastreio);
+      return null;
+    }
+    return rastreio;
+  }
+
+  public StatusIngestao situacao(String rastreio) {
+    return situacoes.getIfPresent(rastreio);
+  }
+
+  @Override
+  public void start() {
+    ativa = true;
+    gravadora = Thread.ofPlatform().name("ingestao-autores").start(this::gravar);
+  }
+
+  // 🔹 Para de aceitar pedidos e espera a gravadora esvaziar a fila.
+  @Override
+  public void stop() {
+    ativa = false;
+    try {
+      gravadora.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    // Pedido que entrou na fila enquanto a gravadora terminava
+    List<Pedido> restantes = new ArrayList<>();
+    fila.drainTo(restantes);
+    if (!restantes.isEmpty()) {
+      gravarLote(restantes);
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return gravadora != null && gravadora.isAlive();
+  }
+
+  // Para depois do servidor web (que para antes, por ter fase maior): nenhuma
+  // requisição chega mais quando a fila é esvaziada
+  @Override
+  public int getPhase() {
+    return SmartLifecycle.DEFAULT_PHASE - 4096;
+  }
+
+  private void gravar() {
+    List<Pedido> lote = new ArrayList<>(loteMaximo);
+    while (ativa || !fila.isEmpty()) {
+      try {
+        Pedido primeiro = fila.poll(100, TimeUnit.MILLISECONDS);
+        if (primeiro == null) {
+          continue;
+        }
+        lote.add(primeiro);
+
+        // Junta o que chegar até o lote encher ou a espera acabar
+        long limite = System.nanoTime() + esperaMaximaNanos;
+        while (lote.size() < loteMaximo) {
+          fila.drainTo(lote, loteMaximo - lote.size());
+          long restante = limite - System.nanoTime();
+          if (lote.size() >= loteMaximo || restante <= 0) {
+            break;
+          }
+          Pedido proximo = fila.poll(restante, TimeUnit.NANOSECONDS);
+          if (proximo == null) {
+            break;
+          }
+          lote.add(proximo);
+        }
+
+        gravarLote(lote);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        log.error("Falha inesperada na ingestao de autores", e);
+      } finally {
+        lote.clear();
+      }
+    }
+  }
+
+  // 🔹 Grava o lote em uma transação. Se ela falha, um autor inválido não
+  // pode derrubar os outros: o lote é gravado de novo, um autor por vez, para
+  // saber qual falhou.
+  private void gravarLote(List<Pedido> lote) {
+    List<Autor> autores = lote.stream().map(Pedido::autor).toList();
+    try {
+      dao.saveAll(autores);
+      String token = tokenConsistencia();
+      for (Pedido pedido : lote) {
+        situacoes.put(pedido.rastreio(), StatusIngestao.gravado(pedido.rastreio(), pedido.autor().getId(), token));
+      }
+      return;
+    } catch (RuntimeException e) {
+      log.warn("Falha ao gravar lote de {} autores; gravando um a um", lote.size(), e);
+    }
+
+    for (Pedido pedido : lote) {
+      Autor autor = pedido.autor();
+      // O persist que falhou pode ter deixado ids atribuídos. Ids enviados
+      // pelo cliente são recusados antes de entrar na fila (ver
+      // AutorController.salvarAssincrono), então qualquer id aqui foi gerado.
+      autor.setId(null);
+      autor.setVersao(null);
+      if (autor.getInfoAutor() != null) {
+        autor.getInfoAutor().setId(null);
+        autor.getInfoAutor().setVersao(null);
+      }
+      try {
+        dao.save(autor);
+        situacoes.put(pedido.rastreio(), StatusIngestao.gravado(pedido.rastreio(), autor.getId(), tokenConsistencia()));
+      } catch (RuntimeException e) {
+        situacoes.put(pedido.rastreio(), StatusIngestao.falhou(pedido.rastreio(), e.getMessage()));
+      }
+    }
+  }
+
+  // Cobre a gravação que acabou de ser confirmada (e as anteriores)
+  private String tokenConsistencia() {
+    ConsistenciaLeitura.Token token = consistencia.tokenAtual();
+    return token == null ? null : token.toString();
+  }
+}
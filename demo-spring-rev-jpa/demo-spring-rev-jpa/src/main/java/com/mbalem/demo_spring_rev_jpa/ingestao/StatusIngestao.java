@@ -0,0 +1,25 @@
+package com.mbalem.demo_spring_rev_jpa.ingestao;
+
+// 🔹 Situação de um autor enviado por POST /autores?assincrono=true,
+// consultada em GET /autores/ingestao/{rastreio}.
+// "id" é preenchido quando o autor foi gravado; "erro", quando falhou.
+// "consistencia" é o token de consistência da gravação (com réplicas de
+// leitura), para ser enviado em X-Consistencia nas leituras seguintes.
+public record StatusIngestao(String rastreio, Estado estado, Long id, String erro, String consistencia) {
+
+  public enum Estado {
+    PENDENTE, GRAVADO, FALHOU
+  }
+
+  static StatusIngestao pendente(String rastreio) {
+    return new StatusIngestao(rastreio, Estado.PENDENTE, null, null, null);
+  }
+
+  static StatusIngestao gravado(String rastreio, Long id, String consistencia) {
+    return new StatusIngestao(rastreio, Estado.GRAVADO, id, null, consistencia);
+  }
+
+  static StatusIngestao falhou(String rastreio, String erro) {
+    return new StatusIngestao(rastreio, Estado.FALHOU, null, erro, null);
+  }
+}
@@ -0,0 +1,160 @@
+package com.mbalem.demo_spring_rev_jpa.metricas;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+// 🔹 Espera e posse de conexões JDBC por rota (por exemplo,
+// "GET /autores/{id}"), expostas em GET /metricas/conexoes.
+//
+// Cada requisição acumula em um UsoConexoes quanto esperou pelas conexões e
+// por quanto tempo as manteve; ao terminar, os totais vão para os
+// histogramas da rota, junto com a duração da requisição. "posse / duração"
+// perto de 1 indica uma rota que segura a conexão durante quase toda a
+// requisição (serialização, chamadas externas...) em vez de só durante as
+// consultas.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "autores.metricas.habilitado", havingValue = "true", matchIfMissing = true)
+public class FiltroUsoConexoes extends OncePerRequestFilter {
+
+  // Requisições que não chegaram a um controller (404, arquivos estáticos...)
+  private static final String SEM_ROTA = "(sem rota)";
+
+  private final long maximoMicros;
+
+  private final Map<String, Rota> rotas = new ConcurrentHashMap<>();
+
+  public FiltroUsoConexoes(@Value("${autores.metricas.latencia-maxima:60s}") Duration latenciaMaxima) {
+    this.maximoMicros = latenciaMaxima.toNanos() / 1_000;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    UsoConexoes uso = UsoConexoes.iniciar();
+    long inicio = System.nanoTime();
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      uso.encerrar();
+
+      if (request.isAsyncStarted()) {
+        // Resposta assíncrona (StreamingResponseBody do export...): a
+        // requisição só termina quando o processamento em outra thread acaba
+        request.getAsyncContext().addListener(new AsyncListener() {
+          @Override
+          public void onComplete(AsyncEvent evento) {
+            registrar(request, inicio, uso);
+          }
+
+          @Override
+          public void onTimeout(AsyncEvent evento) {
+          }
+
+          @Override
+          public void onError(AsyncEvent evento) {
+          }
+
+          @Override
+          public void onStartAsync(AsyncEvent evento) {
+          }
+        });
+      } else {
+        registrar(request, inicio, uso);
+      }
+    }
+  }
+
+  private void registrar(HttpServletRequest request, long inicio, UsoConexoes uso) {
+    long duracao = System.nanoTime() - inicio;
+    Object padrao = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    String rota = request.getMethod() + " " + (padrao != null ? padrao : SEM_ROTA);
+    rotas.computeIfAbsent(rota, nome -> new Rota(nome, maximoMicros)).registrar(duracao, uso);
+  }
+
+  public List<Rota.Resumo> resumir() {
+    List<Rota.Resumo> resumos = new ArrayList<>(rotas.size());
+    for (Rota rota : rotas.values()) {
+      resumos.add(rota.resumir());
+    }
+    resumos.sort(Comparator.comparing(Rota.Resumo::rota));
+    return resumos;
+  }
+
+  public void zerar() {
+    rotas.clear();
+  }
+
+  // 🔹 Totais de uma rota.
+  public static class Rota {
+
+    private final String nome;
+
+    private final LongAdder requisicoes = new LongAdder();
+
+    private final LongAdder conexoes = new LongAdder();
+
+    private final LongAdder duracaoNanos = new LongAdder();
+
+    private final LongAdder posseNanos = new LongAdder();
+
+    private final Latencias duracao;
+
+    private final Latencias espera;
+
+    private final Latencias posse;
+
+    Rota(String nome, long maximoMicros) {
+      this.nome = nome;
+      this.duracao = new Latencias(maximoMicros);
+      this.espera = new Latencias(maximoMicros);
+      this.posse = new Latencias(maximoMicros);
+    }
+
+    void registrar(long duracaoRequisicao, UsoConexoes uso) {
+      requisicoes.increment();
+      conexoes.add(uso.conexoes());
+      duracaoNanos.add(duracaoRequisicao);
+      posseNanos.add(uso.posseNanos());
+      duracao.registrarNanos(duracaoRequisicao);
+      espera.registrarNanos(uso.esperaNanos());
+      posse.registrarNanos(uso.posseNanos());
+    }
+
+    Resumo resumir() {
+      long total = requisicoes.sum();
+      long duracaoTotal = duracaoNanos.sum();
+      return new Resumo(nome, total,
+          total > 0 ? (double) conexoes.sum() / total : 0,
+          duracaoTotal > 0 ? (double) posseNanos.sum() / duracaoTotal : 0,
+          duracao.percentis(), espera.percentis(), posse.percentis());
+    }
+
+    // 🔹 Por requisição: conexões obtidas e os histogramas da duração, da
+    // espera total pelas conexões e da posse total delas.
+    public record Resumo(String rota, long requisicoes, double conexoesPorRequisicao, double possePorDuracao,
+        Latencias.Percentis duracao, Latencias.Percentis espera, Latencias.Percentis posse) {
+    }
+  }
+}
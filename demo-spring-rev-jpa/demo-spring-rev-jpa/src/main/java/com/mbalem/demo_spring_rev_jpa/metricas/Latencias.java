@@ -0,0 +1,64 @@
+package com.mbalem.demo_spring_rev_jpa.metricas;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+// 🔹 Histograma de latências (em microssegundos) para registro concorrente.
+//
+// O registro não aloca memória nem disputa locks: o Recorder do HdrHistogram
+// grava em um histograma ativo e, na leitura, troca-o por outro vazio
+// (getIntervalHistogram); o intervalo lido é somado ao histograma acumulado
+// desde o início (ou desde zerar()).
+public class Latencias {
+
+  // 🔹 2 algarismos significativos (erro de até 1%): cada histograma ocupa
+  // ~20 KB para latências até 60 s; com 3 algarismos seriam ~140 KB.
+  private static final int ALGARISMOS_SIGNIFICATIVOS = 2;
+
+  private final long maximoMicros;
+
+  private final Recorder recorder;
+
+  // Guardados pela leitura (synchronized)
+  private final Histogram acumulado;
+
+  private Histogram intervalo;
+
+  public Latencias(long maximoMicros) {
+    this.maximoMicros = maximoMicros;
+    this.recorder = new Recorder(maximoMicros, ALGARISMOS_SIGNIFICATIVOS);
+    this.acumulado = new Histogram(maximoMicros, ALGARISMOS_SIGNIFICATIVOS);
+  }
+
+  // 🔹 Latências acima do máximo são registradas como o máximo.
+  public void registrarNanos(long nanos) {
+    recorder.recordValue(Math.min(Math.max(nanos / 1_000, 0), maximoMicros));
+  }
+
+  public synchronized Percentis percentis() {
+    intervalo = recorder.getIntervalHistogram(intervalo);
+    acumulado.add(intervalo);
+    return new Percentis(acumulado.getTotalCount(),
+        milissegundos(acumulado.getMean()),
+        milissegundos(acumulado.getValueAtPercentile(50)),
+        milissegundos(acumulado.getValueAtPercentile(90)),
+        milissegundos(acumulado.getValueAtPercentile(99)),
+        milissegundos(acumulado.getValueAtPercentile(99.9)),
+        milissegundos(acumulado.getMaxValue()));
+  }
+
+  // 🔹 Recomeça a medição. Registros em andamento podem cair em qualquer lado.
+  public synchronized void zerar() {
+    intervalo = recorder.getIntervalHistogram(intervalo);
+    acumulado.reset();
+  }
+
+  private static double milissegundos(double micros) {
+    return Math.round(micros) / 1_000.0;
+  }
+
+  // 🔹 Quantidade de registros e latências em milissegundos.
+  public record Percentis(long quantidade, double mediaMs, double p50Ms, double p90Ms, double p99Ms,
+      double p999Ms, double maximoMs) {
+  }
+}
@@ -0,0 +1,67 @@
+package com.mbalem.demo_spring_rev_jpa.metricas;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// 🔹 Latências, chamadas, erros e linhas devolvidas de um método
+// instrumentado.
+//
+// O registro é feito pelas threads das requisições sem alocar memória nem
+// disputar locks: as latências vão para um Latencias (Recorder do
+// HdrHistogram) e os contadores são LongAdder, que espalham os incrementos
+// concorrentes.
+public class MetricaMetodo {
+
+  private final String nome;
+
+  private final Latencias latencias;
+
+  private final LongAdder chamadas = new LongAdder();
+
+  private final LongAdder erros = new LongAdder();
+
+  private final LongAdder linhas = new LongAdder();
+
+  public MetricaMetodo(String nome, long maximoMicros) {
+    this.nome = nome;
+    this.latencias = new Latencias(maximoMicros);
+  }
+
+  public String nome() {
+    return nome;
+  }
+
+  // 🔹 Chamado a cada execução do método.
+  public void registrar(long nanos, boolean erro, long linhasDevolvidas) {
+    latencias.registrarNanos(nanos);
+    chamadas.increment();
+    if (erro) {
+      erros.increment();
+    }
+    if (linhasDevolvidas > 0) {
+      linhas.add(linhasDevolvidas);
+    }
+  }
+
+  // 🔹 Situação acumulada; "segundos" é o tempo desde o início da medição,
+  // para a vazão.
+  public Resumo resumir(double segundos) {
+    Latencias.Percentis percentis = latencias.percentis();
+    long total = chamadas.sum();
+    return new Resumo(nome, total, erros.sum(), linhas.sum(),
+        segundos > 0 ? total / segundos : 0,
+        percentis.mediaMs(), percentis.p50Ms(), percentis.p90Ms(), percentis.p99Ms(), percentis.p999Ms(),
+        percentis.maximoMs());
+  }
+
+  // 🔹 Recomeça a medição. Chamadas em andamento podem cair em qualquer lado.
+  public void zerar() {
+    latencias.zerar();
+    chamadas.reset();
+    erros.reset();
+    linhas.reset();
+  }
+
+  public record Resumo(String metodo, long chamadas, long erros, long linhas, double chamadasPorSegundo,
+      double mediaMs, double p50Ms, double p90Ms, double p99Ms, double p999Ms, double maximoMs) {
+  }
+}
@@ -0,0 +1,111 @@
+package com.mbalem.demo_spring_rev_jpa.metricas;
+
+import com.mbalem.demo_spring_rev_jpa.dto.Pagina;
+import com.mbalem.demo_spring_rev_jpa.entity.Autor;
+import com.mbalem.demo_spring_rev_jpa.entity.InfoAutor;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.http.ResponseEntity;
+
+// 🔹 Mede os métodos públicos das classes informadas (AutorDao e
+// AutorController, ver InstrumentacaoMetodos).
+//
+// Cada método ganha a sua MetricaMetodo na criação deste objeto; durante as
+// chamadas só há a consulta ao mapa (sem alocação) e o registro.
+//
+// "Linhas" conta os itens devolvidos quando o resultado é uma coleção, uma
+// Pagina ou uma entidade (1); contagens (Long, int) e respostas já
+// serializadas (byte[]) não entram. "Erros" conta as exceções, inclusive os
+// ResponseStatusException dos controllers (404, 409...).
+public class MetricasMetodos implements MethodInterceptor {
+
+  private final Map<Method, MetricaMetodo> metricas;
+
+  private volatile long inicio = System.nanoTime();
+
+  public MetricasMetodos(Duration latenciaMaxima, Class<?>... classes) {
+    Map<Method, MetricaMetodo> porMetodo = new HashMap<>();
+    for (Class<?> classe : classes) {
+      for (Method metodo : classe.getDeclaredMethods()) {
+        if (Modifier.isPublic(metodo.getModifiers()) && !Modifier.isStatic(metodo.getModifiers())
+            && !metodo.isSynthetic()) {
+          porMetodo.put(metodo, new MetricaMetodo(classe.getSimpleName() + "." + metodo.getName(),
+              latenciaMaxima.toNanos() / 1_000));
+        }
+      }
+    }
+    this.metricas = Map.copyOf(porMetodo);
+  }
+
+  // 🔹 Usado pelo pointcut: só os métodos registrados são interceptados.
+  public boolean mede(Method metodo) {
+    return metricas.containsKey(metodo);
+  }
+
+  @Override
+  public Object invoke(MethodInvocation invocacao) throws Throwable {
+    MetricaMetodo metrica = metricas.get(invocacao.getMethod());
+    if (metrica == null) {
+      return invocacao.proceed();
+    }
+
+    long comeco = System.nanoTime();
+    Object resultado;
+    try {
+      resultado = invocacao.proceed();
+    } catch (Throwable erro) {
+      metrica.registrar(System.nanoTime() - comeco, true, 0);
+      throw erro;
+    }
+    metrica.registrar(System.nanoTime() - comeco, false, linhas(resultado));
+    return resultado;
+  }
+
+  // 🔹 Métodos em ordem de nome, com a vazão calculada desde o início (ou
+  // desde a última chamada a zerar()).
+  public List<MetricaMetodo.Resumo> resumir() {
+    double segundos = segundosMedidos();
+    List<MetricaMetodo.Resumo> resumos = new ArrayList<>(metricas.size());
+    for (MetricaMetodo metrica : metricas.values()) {
+      resumos.add(metrica.resumir(segundos));
+    }
+    resumos.sort(Comparator.comparing(MetricaMetodo.Resumo::metodo));
+    return resumos;
+  }
+
+  public double segundosMedidos() {
+    return (System.nanoTime() - inicio) / 1e9;
+  }
+
+  public void zerar() {
+    metricas.values().forEach(MetricaMetodo::zerar);
+    inicio = System.nanoTime();
+  }
+
+  private static long linhas(Object resultado) {
+    if (resultado instanceof ResponseEntity<?> resposta) {
+      resultado = resposta.getBody();
+    }
+    if (resultado instanceof Collection<?> colecao) {
+      return colecao.size();
+    }
+    if (resultado instanceof Pagina<?> pagina) {
+      return pagina.itens().size();
+    }
+    if (resultado instanceof Autor || resultado instanceof InfoAutor) {
+      return 1;
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,139 @@
+package com.mbalem.demo_spring_rev_jpa.metricas;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// 🔹 Métricas dos pools do Hikari (autores.metricas.habilitado=true), expostas
+// em GET /metricas/conexoes.
+//
+// Cada pool recebe este objeto como MetricsTrackerFactory antes de abrir a
+// primeira conexão. O Hikari então informa, na thread de quem pediu a
+// conexão, quanto tempo ela levou para ser entregue e, na thread que a
+// fechou, quando voltou ao pool; daí vêm a espera e a posse das conexões por
+// requisição (UsoConexoes). A situação do pool (ativas, ociosas, pendentes) é
+// lida do PoolStats que o Hikari entrega ao criar o tracker.
+//
+// O pool do spring.datasource é configurado aqui como bean; os pools que não
+// são beans (réplicas e shards) chamam instrumentar().
+@Component
+@ConditionalOnProperty(name = "autores.metricas.habilitado", havingValue = "true", matchIfMissing = true)
+public class MetricasPools implements BeanPostProcessor, MetricsTrackerFactory {
+
+  private final long maximoMicros;
+
+  private final List<Pool> pools = new CopyOnWriteArrayList<>();
+
+  public MetricasPools(@Value("${autores.metricas.latencia-maxima:60s}") Duration latenciaMaxima) {
+    this.maximoMicros = latenciaMaxima.toNanos() / 1_000;
+  }
+
+  // 🔹 Antes da inicialização: AdmissaoConexoes troca o bean por um
+  // DataSource que o envolve depois dela.
+  @Override
+  public Object postProcessBeforeInitialization(Object bean, String beanName) {
+    if (bean instanceof HikariDataSource hikari) {
+      instrumentar(hikari);
+    }
+    return bean;
+  }
+
+  public void instrumentar(HikariDataSource hikari) {
+    hikari.setMetricsTrackerFactory(this);
+  }
+
+  @Override
+  public IMetricsTracker create(String nome, PoolStats estatisticas) {
+    Pool pool = new Pool(nome, estatisticas, maximoMicros);
+    pools.add(pool);
+    return pool;
+  }
+
+  public List<Pool.Resumo> resumir() {
+    List<Pool.Resumo> resumos = new ArrayList<>(pools.size());
+    for (Pool pool : pools) {
+      resumos.add(pool.resumir());
+    }
+    return resumos;
+  }
+
+  public void zerar() {
+    pools.forEach(Pool::zerar);
+  }
+
+  // 🔹 Tracker de um pool.
+  public static class Pool implements IMetricsTracker {
+
+    private final String nome;
+
+    private final PoolStats estatisticas;
+
+    private final Latencias aquisicao;
+
+    private final Latencias uso;
+
+    private final LongAdder timeouts = new LongAdder();
+
+    Pool(String nome, PoolStats estatisticas, long maximoMicros) {
+      this.nome = nome;
+      this.estatisticas = estatisticas;
+      this.aquisicao = new Latencias(maximoMicros);
+      this.uso = new Latencias(maximoMicros);
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long nanos) {
+      aquisicao.registrarNanos(nanos);
+      UsoConexoes.obteve(nanos);
+    }
+
+    // O Hikari mede o uso em milissegundos; a posse por requisição é medida
+    // em nanossegundos por UsoConexoes
+    @Override
+    public void recordConnectionUsageMillis(long millis) {
+      uso.registrarNanos(millis * 1_000_000);
+      UsoConexoes.devolveu();
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+      timeouts.increment();
+    }
+
+    Resumo resumir() {
+      return new Resumo(nome,
+          estatisticas.getActiveConnections(),
+          estatisticas.getIdleConnections(),
+          estatisticas.getTotalConnections(),
+          estatisticas.getMaxConnections(),
+          estatisticas.getPendingThreads(),
+          timeouts.sum(),
+          aquisicao.percentis(),
+          uso.percentis());
+    }
+
+    void zerar() {
+      aquisicao.zerar();
+      uso.zerar();
+      timeouts.reset();
+    }
+
+    // 🔹 "aquisicao": tempo até o Hikari entregar a conexão; "uso": tempo
+    // entre a entrega e a devolução (resolução de 1 ms).
+    public record Resumo(String pool, int ativas, int ociosas, int total, int maximo, int pendentes,
+        long timeouts, Latencias.Percentis aquisicao, Latencias.Percentis uso) {
+    }
+  }
+}
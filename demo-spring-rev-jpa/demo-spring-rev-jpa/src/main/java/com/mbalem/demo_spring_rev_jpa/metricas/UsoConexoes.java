@@ -0,0 +1,163 @@
+package com.mbalem.demo_spring_rev_jpa.metricas;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+// 🔹 Uso de conexões JDBC por uma requisição.
+//
+// FiltroUsoConexoes cria um por requisição; MetricasPools (as chamadas do
+// Hikari ao entregar e receber de volta cada conexão) e AdmissaoConexoes
+// (espera por uma permissão no modo de threads virtuais) somam nele:
+// - espera: tempo até obter cada conexão;
+// - posse: tempo entre obter e devolver cada conexão (duas conexões abertas
+//   ao mesmo tempo contam em dobro, como no pool).
+//
+// A contagem segue a thread da requisição. O trabalho feito em outras threads
+// em nome dela (consultas paralelas aos shards, streaming do export) entra na
+// conta quando roda dentro de vincular(uso), com o uso capturado por atual()
+// na thread da requisição. Os totais aceitam somas de várias threads ao mesmo
+// tempo; as conexões abertas ficam por thread.
+public final class UsoConexoes {
+
+  private static final ThreadLocal<Participacao> ATUAL = new ThreadLocal<>();
+
+  private final LongAdder esperaNanos = new LongAdder();
+
+  private final LongAdder posseNanos = new LongAdder();
+
+  private final LongAdder conexoes = new LongAdder();
+
+  // Participação da thread que iniciou a contagem
+  private final Participacao principal = new Participacao(this);
+
+  private UsoConexoes() {
+  }
+
+  static UsoConexoes iniciar() {
+    UsoConexoes uso = new UsoConexoes();
+    ATUAL.set(uso.principal);
+    return uso;
+  }
+
+  // 🔹 Encerra a contagem na thread que a iniciou; conexões ainda abertas
+  // nela contam até agora.
+  void encerrar() {
+    ATUAL.remove();
+    principal.fechar();
+  }
+
+  // 🔹 Uso da requisição da thread atual (null fora de uma requisição), para
+  // passar a vincular(uso) em outra thread.
+  public static UsoConexoes atual() {
+    Participacao participacao = ATUAL.get();
+    return participacao != null ? participacao.uso : null;
+  }
+
+  // 🔹 Soma em "uso" as conexões obtidas pela thread atual até o close() do
+  // vínculo (uso null: não conta nada). Conexões ainda abertas no close()
+  // contam até ali.
+  public static Vinculo vincular(UsoConexoes uso) {
+    Participacao anterior = ATUAL.get();
+    Participacao participacao = uso != null ? new Participacao(uso) : null;
+    ATUAL.set(participacao);
+    return new Vinculo(participacao, anterior);
+  }
+
+  // 🔹 Tempo esperando por uma conexão antes de pedi-la ao pool.
+  public static void esperou(long nanos) {
+    Participacao participacao = ATUAL.get();
+    if (participacao != null) {
+      participacao.uso.esperaNanos.add(nanos);
+    }
+  }
+
+  static void obteve(long esperaNanos) {
+    Participacao participacao = ATUAL.get();
+    if (participacao != null) {
+      participacao.obteve(esperaNanos);
+    }
+  }
+
+  static void devolveu() {
+    Participacao participacao = ATUAL.get();
+    if (participacao != null) {
+      participacao.devolveu();
+    }
+  }
+
+  long esperaNanos() {
+    return esperaNanos.sum();
+  }
+
+  long posseNanos() {
+    return posseNanos.sum();
+  }
+
+  int conexoes() {
+    return conexoes.intValue();
+  }
+
+  // 🔹 Devolve a thread ao uso que ela tinha antes de vincular(uso).
+  public static final class Vinculo implements AutoCloseable {
+
+    private final Participacao participacao;
+
+    private final Participacao anterior;
+
+    private Vinculo(Participacao participacao, Participacao anterior) {
+      this.participacao = participacao;
+      this.anterior = anterior;
+    }
+
+    @Override
+    public void close() {
+      if (participacao != null) {
+        participacao.fechar();
+      }
+      if (anterior != null) {
+        ATUAL.set(anterior);
+      } else {
+        ATUAL.remove();
+      }
+    }
+  }
+
+  // 🔹 Conexões abertas por uma thread em nome de um uso. Só a própria
+  // thread mexe aqui.
+  private static final class Participacao {
+
+    private final UsoConexoes uso;
+
+    // Instantes em que as conexões ainda abertas foram obtidas (pilha: a
+    // última obtida é a primeira devolvida)
+    private long[] abertas = new long[4];
+
+    private int quantidadeAbertas;
+
+    private Participacao(UsoConexoes uso) {
+      this.uso = uso;
+    }
+
+    private void obteve(long esperaNanos) {
+      uso.esperaNanos.add(esperaNanos);
+      uso.conexoes.increment();
+      if (quantidadeAbertas == abertas.length) {
+        abertas = Arrays.copyOf(abertas, abertas.length * 2);
+      }
+      abertas[quantidadeAbertas++] = System.nanoTime();
+    }
+
+    private void devolveu() {
+      if (quantidadeAbertas > 0) {
+        uso.posseNanos.add(System.nanoTime() - abertas[--quantidadeAbertas]);
+      }
+    }
+
+    private void fechar() {
+      long agora = System.nanoTime();
+      while (quantidadeAbertas > 0) {
+        uso.posseNanos.add(agora - abertas[--quantidadeAbertas]);
+      }
+    }
+  }
+}
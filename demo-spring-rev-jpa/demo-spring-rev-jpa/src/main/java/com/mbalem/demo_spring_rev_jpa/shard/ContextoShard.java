@@ -0,0 +1,32 @@
+package com.mbalem.demo_spring_rev_jpa.shard;
+
+// 🔹 Shard usado pela thread atual.
+//
+// É lido pelo DataSource de shards (para escolher o pool de conexões) e pelo
+// gerador de ids (para colocar o número do shard no id). Shards define o
+// valor em volta de cada transação; fora disso vale o shard 0, que é o banco
+// de spring.datasource.url.
+public final class ContextoShard {
+
+  private static final ThreadLocal<Integer> ATUAL = new ThreadLocal<>();
+
+  private ContextoShard() {
+  }
+
+  public static int atual() {
+    Integer shard = ATUAL.get();
+    return shard == null ? 0 : shard;
+  }
+
+  // Define o shard da thread (null = nenhum) e devolve o anterior, para ser
+  // restaurado no fim
+  static Integer definir(Integer shard) {
+    Integer anterior = ATUAL.get();
+    if (shard == null) {
+      ATUAL.remove();
+    } else {
+      ATUAL.set(shard);
+    }
+    return anterior;
+  }
+}
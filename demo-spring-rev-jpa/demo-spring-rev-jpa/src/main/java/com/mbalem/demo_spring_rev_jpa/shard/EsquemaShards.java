@@ -0,0 +1,52 @@
+package com.mbalem.demo_spring_rev_jpa.shard;
+
+import java.util.Map;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+
+// 🔹 Aplica o spring.jpa.hibernate.ddl-auto (update, create...) também nos
+// shards além do 0.
+//
+// O Hibernate só cuida do esquema do banco que o DataSource entrega sem
+// shard definido (o shard 0). Enquanto a SessionFactory é montada, este
+// Integrator repete a mesma ação para cada outro shard, com o ContextoShard
+// apontando para ele. Com create-drop, só o shard 0 é apagado no
+// desligamento.
+public class EsquemaShards implements Integrator {
+
+  private final int quantidade;
+
+  public EsquemaShards(int quantidade) {
+    this.quantidade = quantidade;
+  }
+
+  @Override
+  public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+      SessionFactoryImplementor sessionFactory) {
+
+    Map<String, Object> configuracao = bootstrapContext.getServiceRegistry()
+        .requireService(ConfigurationService.class)
+        .getSettings();
+
+    for (int shard = 1; shard < quantidade; shard++) {
+      Integer anterior = ContextoShard.definir(shard);
+      try {
+        SchemaManagementToolCoordinator.process(metadata, bootstrapContext.getServiceRegistry(), configuracao,
+            acao -> {
+            });
+      } finally {
+        ContextoShard.definir(anterior);
+      }
+    }
+  }
+
+  @Override
+  public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+  }
+}
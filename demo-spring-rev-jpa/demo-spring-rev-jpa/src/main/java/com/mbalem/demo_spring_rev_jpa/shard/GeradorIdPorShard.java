@@ -0,0 +1,79 @@
+package com.mbalem.demo_spring_rev_jpa.shard;
+
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.boot.model.relational.Database;
+import org.hibernate.boot.model.relational.SqlStringGenerationContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.OptimizableGenerator;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+// 🔹 Gerador de ids que identifica o shard pelo próprio id:
+//
+//   id = shard << 40 | sequência
+//
+// A sequência vem de um TableGenerator (tabela id_geradores, otimizador
+// pooled-lo, blocos de "tamanhoBloco" ids), e os blocos são sempre reservados
+// na tabela do shard 0: uma sequência só para todos os shards, então duas
+// instâncias nunca usam o mesmo número, qualquer que seja o shard. O shard 0
+// só é consultado uma vez por bloco. Com um único shard os ids são exatamente
+// os de antes.
+//
+// A sequência vai até 2^40 (~10^12 ids); o número do shard ocupa os bits
+// restantes do long.
+public class GeradorIdPorShard implements IdentifierGenerator {
+
+  private final IdPorShard definicao;
+
+  private final TableGenerator blocos = new TableGenerator();
+
+  public GeradorIdPorShard(IdPorShard definicao) {
+    this.definicao = definicao;
+  }
+
+  @Override
+  public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+    Properties tabela = new Properties();
+    tabela.putAll(parameters);
+    tabela.put(TableGenerator.TABLE_PARAM, "id_geradores");
+    tabela.put(TableGenerator.SEGMENT_COLUMN_PARAM, "nome_sequencia");
+    tabela.put(TableGenerator.VALUE_COLUMN_PARAM, "proximo_valor");
+    tabela.put(TableGenerator.SEGMENT_VALUE_PARAM, definicao.sequencia());
+    tabela.put(OptimizableGenerator.INCREMENT_PARAM, String.valueOf(definicao.tamanhoBloco()));
+    tabela.put(OptimizableGenerator.INITIAL_PARAM, "1");
+    blocos.configure(type, tabela, serviceRegistry);
+  }
+
+  @Override
+  public void registerExportables(Database database) {
+    blocos.registerExportables(database);
+  }
+
+  @Override
+  public void initialize(SqlStringGenerationContext context) {
+    blocos.initialize(context);
+  }
+
+  // 🔹 O TableGenerator reserva um bloco novo em uma conexão separada, obtida
+  // do DataSource de shards: com o ContextoShard no shard 0 durante a
+  // chamada, essa conexão é a do shard 0.
+  @Override
+  public Object generate(SharedSessionContractImplementor session, Object object) {
+    int shard = ContextoShard.atual();
+    Integer anterior = ContextoShard.definir(0);
+    long sequencia;
+    try {
+      sequencia = ((Number) blocos.generate(session, object)).longValue();
+    } finally {
+      ContextoShard.definir(anterior);
+    }
+    if (sequencia >>> Shards.BITS_SEQUENCIA != 0) {
+      throw new IllegalStateException("Sequencia " + definicao.sequencia() + " esgotada");
+    }
+    return (long) shard << Shards.BITS_SEQUENCIA | sequencia;
+  }
+}
@@ -0,0 +1,23 @@
+package com.mbalem.demo_spring_rev_jpa.shard;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+// 🔹 Id gerado em blocos pela tabela "id_geradores" (a do shard 0), com o
+// número do shard em que a entidade é gravada nos bits altos (ver
+// GeradorIdPorShard).
+@IdGeneratorType(GeradorIdPorShard.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD, ElementType.METHOD })
+public @interface IdPorShard {
+
+  // 🔹 Valor de "nome_sequencia" em id_geradores.
+  String sequencia();
+
+  // 🔹 Quantos ids são reservados de uma vez.
+  int tamanhoBloco() default 1000;
+}
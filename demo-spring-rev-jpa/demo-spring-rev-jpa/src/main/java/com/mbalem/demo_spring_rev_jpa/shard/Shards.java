@@ -0,0 +1,202 @@
+package com.mbalem.demo_spring_rev_jpa.shard;
+
+import com.mbalem.demo_spring_rev_jpa.metricas.UsoConexoes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// 🔹 Shards dos autores (autores.shards.habilitado=true): cada shard é um
+// banco com as mesmas tabelas, e cada autor (com o seu InfoAutor) mora em um
+// só deles.
+//
+// O shard de um autor está no próprio id (bits a partir de BITS_SEQUENCIA,
+// ver GeradorIdPorShard): buscas e escritas por id vão direto ao shard certo,
+// sem tabela de localização.
+//
+// As transações são abertas aqui, depois de definido o shard: a conexão de
+// uma transação é de um único banco, então cada transação é de um único
+// shard. Consultas que envolvem todos os shards rodam uma transação por shard,
+// em paralelo (threads virtuais), e quem chamou junta os resultados.
+//
+// Sem shards configurados há um só shard (o 0, spring.datasource.url) e tudo
+// roda na thread de quem chamou, como antes.
+@Component
+public class Shards implements AutoCloseable {
+
+  // 🔹 Bits do id reservados para a sequência de cada shard.
+  public static final int BITS_SEQUENCIA = 40;
+
+  private final int quantidade;
+
+  private final AtomicInteger proximo = new AtomicInteger();
+
+  private final TransactionTemplate leitura;
+
+  private final TransactionTemplate escrita;
+
+  private final ExecutorService paralelo = Executors.newVirtualThreadPerTaskExecutor();
+
+  public Shards(PlatformTransactionManager transacoes,
+      @Value("${autores.shards.habilitado:false}") boolean habilitado,
+      @Value("${autores.shards.urls:}") List<String> urls) {
+    this.quantidade = quantidade(habilitado, urls);
+    this.leitura = new TransactionTemplate(transacoes);
+    this.leitura.setReadOnly(true);
+    this.escrita = new TransactionTemplate(transacoes);
+  }
+
+  // 🔹 O shard 0 é o banco de spring.datasource.url; "urls" são os demais.
+  public static int quantidade(boolean habilitado, List<String> urls) {
+    return habilitado ? 1 + urls.size() : 1;
+  }
+
+  public int quantidade() {
+    return quantidade;
+  }
+
+  // 🔹 Shard do id, ou -1 se ele não pertence a nenhum shard configurado
+  // (um autor com esse id não existe).
+  public int shardDe(Long id) {
+    if (id == null || id <= 0) {
+      return -1;
+    }
+    long shard = id >>> BITS_SEQUENCIA;
+    return shard < quantidade ? (int) shard : -1;
+  }
+
+  // 🔹 Shard onde gravar o próximo autor novo, em rodízio.
+  public int proximoParaGravar() {
+    return Math.floorMod(proximo.getAndIncrement(), quantidade);
+  }
+
+  // 🔹 Executa "tarefa" em uma transação somente leitura no shard.
+  public <T> T ler(int shard, Supplier<T> tarefa) {
+    return executar(shard, leitura, tarefa);
+  }
+
+  // 🔹 Executa "tarefa" em uma transação de escrita no shard.
+  public <T> T escrever(int shard, Supplier<T> tarefa) {
+    return executar(shard, escrita, tarefa);
+  }
+
+  public void escrever(int shard, Runnable tarefa) {
+    executar(shard, escrita, () -> {
+      tarefa.run();
+      return null;
+    });
+  }
+
+  // 🔹 Executa "tarefa" em todos os shards, em paralelo, cada um na sua
+  // transação somente leitura. O resultado de cada shard fica na posição do
+  // número do shard.
+  public <T> List<T> lerEmTodos(IntFunction<T> tarefa) {
+    return emParalelo(todos(), leitura, tarefa);
+  }
+
+  // 🔹 Como lerEmTodos, só nos shards informados (na ordem informada).
+  public <T> List<T> lerEm(Collection<Integer> alvos, IntFunction<T> tarefa) {
+    return emParalelo(alvos, leitura, tarefa);
+  }
+
+  // 🔹 Escreve em todos os shards, em paralelo, uma transação por shard.
+  // Não é atômico entre shards: se um falha, os outros já podem ter feito
+  // commit.
+  public <T> List<T> escreverEmTodos(IntFunction<T> tarefa) {
+    return emParalelo(todos(), escrita, tarefa);
+  }
+
+  public <T> List<T> escreverEm(Collection<Integer> alvos, IntFunction<T> tarefa) {
+    return emParalelo(alvos, escrita, tarefa);
+  }
+
+  // 🔹 Executa "tarefa" em cada shard, em sequência, sem abrir transação (por
+  // exemplo, comandos do JdbcTemplate na inicialização).
+  public void emCada(IntConsumer tarefa) {
+    for (int shard = 0; shard < quantidade; shard++) {
+      Integer anterior = ContextoShard.definir(shard);
+      try {
+        tarefa.accept(shard);
+      } finally {
+        ContextoShard.definir(anterior);
+      }
+    }
+  }
+
+  private List<Integer> todos() {
+    return IntStream.range(0, quantidade).boxed().toList();
+  }
+
+  private <T> T executar(int shard, TransactionTemplate transacao, Supplier<T> tarefa) {
+    // Dentro de uma transação já aberta, a conexão é a do shard dela
+    if (TransactionSynchronizationManager.isActualTransactionActive() && ContextoShard.atual() != shard) {
+      throw new IllegalStateException(
+          "Transacao aberta no shard " + ContextoShard.atual() + " nao pode acessar o shard " + shard);
+    }
+    Integer anterior = ContextoShard.definir(shard);
+    try {
+      return transacao.execute(status -> tarefa.get());
+    } finally {
+      ContextoShard.definir(anterior);
+    }
+  }
+
+  private <T> List<T> emParalelo(Collection<Integer> alvos, TransactionTemplate transacao, IntFunction<T> tarefa) {
+    if (alvos.size() == 1) {
+      int shard = alvos.iterator().next();
+      return Collections.singletonList(executar(shard, transacao, () -> tarefa.apply(shard)));
+    }
+
+    // As conexões das tarefas contam para a requisição de quem chamou
+    UsoConexoes uso = UsoConexoes.atual();
+    List<Future<T>> futuros = new ArrayList<>(alvos.size());
+    for (int shard : alvos) {
+      futuros.add(paralelo.submit(() -> {
+        try (UsoConexoes.Vinculo vinculo = UsoConexoes.vincular(uso)) {
+          return executar(shard, transacao, () -> tarefa.apply(shard));
+        }
+      }));
+    }
+
+    List<T> resultados = new ArrayList<>(futuros.size());
+    try {
+      for (Future<T> futuro : futuros) {
+        resultados.add(futuro.get());
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException erro) {
+        throw erro;
+      }
+      if (e.getCause() instanceof Error erro) {
+        throw erro;
+      }
+      throw new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      futuros.forEach(futuro -> futuro.cancel(true));
+      throw new IllegalStateException("Interrompido esperando pelos shards", e);
+    }
+    return resultados;
+  }
+
+  @Override
+  public void close() {
+    paralelo.shutdown();
+  }
+}
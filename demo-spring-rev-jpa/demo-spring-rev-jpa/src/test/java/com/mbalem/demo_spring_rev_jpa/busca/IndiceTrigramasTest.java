@@ -0,0 +1,91 @@
+package com.mbalem.demo_spring_rev_jpa.busca;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.mbalem.demo_spring_rev_jpa.dao.AutorAlteradoEvent;
+
+// A soma das escritas das outras instâncias é comparada fora das buscas: se
+// mudou, uma reconstrução é pedida, e até ela terminar as buscas continuam
+// usando o índice completo anterior.
+class IndiceTrigramasTest {
+
+	@Test
+	void escritasDeOutrasInstanciasPedemReconstrucao() {
+		IndiceTrigramas indice = new IndiceTrigramas(Duration.ZERO, "a");
+		AtomicInteger reconstrucoes = new AtomicInteger();
+		indice.definirReconstrucao(reconstrucoes::incrementAndGet);
+
+		assertThat(indice.iniciarReconstrucao()).isTrue();
+		indice.indexarNaReconstrucao(1L, "Machado", "de Assis");
+		indice.indexarNaReconstrucao(2L, "Clarice", "Lispector");
+		indice.concluirReconstrucao(true, 5);
+
+		indice.verificarEscritasExternas(5);
+		assertThat(reconstrucoes).hasValue(0);
+
+		indice.verificarEscritasExternas(6);
+		assertThat(reconstrucoes).hasValue(1);
+		assertThat(indice.candidatos("machado")).hasValueSatisfying(ids -> assertThat(ids).containsExactly(1L));
+	}
+
+	@Test
+	void reconstrucaoPedidaNoMaximoUmaVezPorIntervalo() {
+		IndiceTrigramas indice = new IndiceTrigramas(Duration.ofHours(1), "a");
+		AtomicInteger reconstrucoes = new AtomicInteger();
+		indice.definirReconstrucao(reconstrucoes::incrementAndGet);
+
+		indice.iniciarReconstrucao();
+		indice.concluirReconstrucao(true, 0);
+
+		indice.verificarEscritasExternas(1);
+		assertThat(reconstrucoes).hasValue(0);
+	}
+
+	@Test
+	void buscasDuranteAReconstrucaoUsamOIndiceAnterior() {
+		IndiceTrigramas indice = new IndiceTrigramas(Duration.ZERO, "a");
+		indice.iniciarReconstrucao();
+		indice.indexarNaReconstrucao(1L, "Machado", "de Assis");
+		indice.indexarNaReconstrucao(2L, "Machadinho", "Silva");
+		indice.concluirReconstrucao(true, 0);
+
+		assertThat(indice.iniciarReconstrucao()).isTrue();
+		indice.indexarNaReconstrucao(1L, "Machado", "de Assis");
+		assertThat(indice.candidatos("machad")).hasValueSatisfying(ids -> assertThat(ids).containsOnly(1L, 2L));
+
+		// Escrita durante a reconstrução: vale para os dois índices
+		indice.aoAlterarAutor(AutorAlteradoEvent.gravado(3L, "Machadão", "Souza", 0L));
+		indice.indexarNaReconstrucao(3L, "Antigo", "Souza");
+		indice.concluirReconstrucao(true, 0);
+
+		assertThat(indice.candidatos("machad")).hasValueSatisfying(ids -> assertThat(ids).containsOnly(1L, 3L));
+		assertThat(indice.candidatos("antigo")).hasValueSatisfying(ids -> assertThat(ids).isEmpty());
+	}
+
+	@Test
+	void escritasQueMudamNomesFicamPendentes() {
+		IndiceTrigramas indice = new IndiceTrigramas(Duration.ZERO, "a");
+		indice.aoAlterarAutor(AutorAlteradoEvent.gravado(1L, "Machado", "de Assis", 0L));
+		indice.aoAlterarAutor(AutorAlteradoEvent.gravado(1L, null, null, 1L));
+		indice.aoAlterarAutor(AutorAlteradoEvent.removido(1L));
+
+		assertThat(indice.retirarEscritasPendentes()).isEqualTo(2);
+		assertThat(indice.retirarEscritasPendentes()).isZero();
+	}
+
+	@Test
+	void contadorDaInstanciaEEstavelECabeNaColuna() {
+		String longa = "instancia-com-um-nome-de-maquina-bem-comprido.exemplo.com.br";
+		assertThat(new IndiceTrigramas(Duration.ZERO, "no-1").contadorEscritas()).isEqualTo("busca@no-1");
+		assertThat(new IndiceTrigramas(Duration.ZERO, longa).contadorEscritas())
+				.isEqualTo(new IndiceTrigramas(Duration.ZERO, longa).contadorEscritas())
+				.startsWith(IndiceTrigramas.PREFIXO_CONTADOR)
+				.hasSizeLessThanOrEqualTo(45);
+		assertThat(new IndiceTrigramas(Duration.ZERO, "").contadorEscritas()).hasSizeLessThanOrEqualTo(45);
+	}
+}
@@ -0,0 +1,86 @@
+package com.mbalem.demo_spring_rev_jpa.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import com.mbalem.demo_spring_rev_jpa.config.ConsistenciaLeitura;
+import com.mbalem.demo_spring_rev_jpa.dao.AutorAlteradoEvent;
+import com.mbalem.demo_spring_rev_jpa.dto.AutorResumo;
+import com.mbalem.demo_spring_rev_jpa.dto.Pagina;
+import com.mbalem.demo_spring_rev_jpa.entity.Autor;
+
+class CacheJsonTest {
+
+	private final CacheJson cache = new CacheJson(new ObjectMapper(), new ConsistenciaLeitura(), DataSize.ofMegabytes(1),
+			DataSize.ofMegabytes(1), Duration.ofMinutes(10), Duration.ofMinutes(10));
+
+	@Test
+	void jsonDeOutraVersaoECarregadoDeNovo() {
+		AtomicInteger carregamentos = new AtomicInteger();
+
+		cache.autor(1L, 0, () -> autor(1L, 0, carregamentos));
+		cache.autor(1L, 0, () -> autor(1L, 0, carregamentos));
+		assertEquals(1, carregamentos.get());
+
+		// Versão gravada por outra instância (nenhum evento chegou aqui)
+		assertEquals(1, cache.autor(1L, 1, () -> autor(1L, 1, carregamentos)).versao());
+		assertEquals(2, carregamentos.get());
+	}
+
+	// Sem a versão no IndiceVersoes, a versão é a do autor carregado
+	@Test
+	void versaoDesconhecidaSempreCarregaOAutor() {
+		AtomicInteger carregamentos = new AtomicInteger();
+
+		cache.autor(1L, 0, () -> autor(1L, 0, carregamentos));
+		assertEquals(2, cache.autor(1L, IndiceVersoes.DESCONHECIDA, () -> autor(1L, 2, carregamentos)).versao());
+		assertEquals(2, carregamentos.get());
+
+		assertNull(cache.autor(2L, IndiceVersoes.DESCONHECIDA, () -> null));
+	}
+
+	@Test
+	void escritaInvalidaSoAsPaginasQueCobremOId() {
+		AtomicInteger carregamentos = new AtomicInteger();
+
+		// Páginas (null, 10] e (10, fim)
+		cache.pagina(null, 2, () -> pagina(carregamentos, 10L, 5L, 10L));
+		cache.pagina(10L, 2, () -> pagina(carregamentos, null, 20L));
+		assertEquals(2, carregamentos.get());
+
+		cache.aoAlterarAutor(AutorAlteradoEvent.removido(20L));
+		cache.pagina(null, 2, () -> pagina(carregamentos, 10L, 5L, 10L));
+		assertEquals(2, carregamentos.get());
+		cache.pagina(10L, 2, () -> pagina(carregamentos, null));
+		assertEquals(3, carregamentos.get());
+
+		cache.aoAlterarAutor(AutorAlteradoEvent.gravado(7L, "Nome", null, 1L));
+		cache.pagina(null, 2, () -> pagina(carregamentos, 10L, 5L, 10L));
+		assertEquals(4, carregamentos.get());
+	}
+
+	private static Autor autor(Long id, long versao, AtomicInteger carregamentos) {
+		carregamentos.incrementAndGet();
+		Autor autor = new Autor();
+		autor.setId(id);
+		autor.setNome("Nome");
+		autor.setSobrenome("Sobrenome");
+		autor.setVersao(versao);
+		return autor;
+	}
+
+	private static Pagina<AutorResumo> pagina(AtomicInteger carregamentos, Long proximoCursor, Long... ids) {
+		carregamentos.incrementAndGet();
+		List<AutorResumo> itens = List.of(ids).stream().map(id -> new AutorResumo(id, "Nome", "Sobrenome", null)).toList();
+		return new Pagina<>(itens, proximoCursor);
+	}
+}
@@ -0,0 +1,142 @@
+package com.mbalem.demo_spring_rev_jpa.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class IndiceVersoesTest {
+
+	private static final Duration VALIDADE = Duration.ofMinutes(1);
+
+	@Test
+	void registraEAvancaSomenteParaVersoesMaisNovas() {
+		IndiceVersoes indice = new IndiceVersoes(16, VALIDADE);
+
+		assertEquals(IndiceVersoes.DESCONHECIDA, indice.versao(7));
+
+		indice.registrar(7, 0);
+		assertEquals(0, indice.versao(7));
+
+		indice.registrar(7, 3);
+		indice.registrar(7, 2); // leitura antiga chegando depois da escrita
+		assertEquals(3, indice.versao(7));
+	}
+
+	@Test
+	void autorRemovidoNaoVoltaAoIndice() {
+		IndiceVersoes indice = new IndiceVersoes(16, VALIDADE);
+
+		indice.registrar(5, 1);
+		indice.remover(5);
+		indice.registrar(5, 1);
+		assertEquals(IndiceVersoes.DESCONHECIDA, indice.versao(5));
+
+		// Remoção antes de qualquer registro também vale
+		indice.remover(9);
+		indice.registrar(9, 4);
+		assertEquals(IndiceVersoes.DESCONHECIDA, indice.versao(9));
+	}
+
+	@Test
+	void escritaSemVersaoLidaInvalidaARegistrada() {
+		IndiceVersoes indice = new IndiceVersoes(16, VALIDADE);
+
+		indice.registrar(4, 2);
+		indice.desatualizar(4);
+		assertEquals(IndiceVersoes.DESCONHECIDA, indice.versao(4));
+
+		indice.registrar(4, 2); // leitura anterior à escrita
+		assertEquals(IndiceVersoes.DESCONHECIDA, indice.versao(4));
+
+		indice.registrar(4, 3);
+		assertEquals(3, indice.versao(4));
+	}
+
+	@Test
+	void versaoExpiraDepoisDaValidadeESeRenovaAoRegistrar() throws Exception {
+		IndiceVersoes indice = new IndiceVersoes(16, Duration.ofMillis(50));
+
+		indice.registrar(3, 2);
+		assertEquals(2, indice.versao(3));
+
+		TimeUnit.MILLISECONDS.sleep(80);
+		assertEquals(IndiceVersoes.DESCONHECIDA, indice.versao(3));
+
+		// Nova leitura da mesma versão no banco
+		indice.registrar(3, 2);
+		assertEquals(2, indice.versao(3));
+	}
+
+	@Test
+	void tabelaCheiaDeVersoesValidasNaoRegistraIdsNovos() {
+		IndiceVersoes indice = new IndiceVersoes(8, VALIDADE);
+
+		for (long id = 1; id <= 10; id++) {
+			indice.registrar(id, id * 10);
+		}
+
+		for (long id = 1; id <= 8; id++) {
+			assertEquals(id * 10, indice.versao(id));
+		}
+		assertEquals(IndiceVersoes.DESCONHECIDA, indice.versao(9));
+		assertEquals(IndiceVersoes.DESCONHECIDA, indice.versao(10));
+	}
+
+	@Test
+	void idsNovosReaproveitamSlotsExpirados() throws Exception {
+		IndiceVersoes indice = new IndiceVersoes(8, Duration.ofMillis(50));
+
+		// Três levas de 8 ids (a capacidade inteira), cada uma depois que a
+		// anterior expirou; cada leva termina com um autor removido
+		for (long leva = 0; leva < 3; leva++) {
+			for (long id = leva * 100 + 1; id <= leva * 100 + 8; id++) {
+				indice.registrar(id, id);
+				assertEquals(id, indice.versao(id));
+			}
+			indice.remover(leva * 100 + 8);
+			TimeUnit.MILLISECONDS.sleep(80);
+			for (long id = leva * 100 + 1; id <= leva * 100 + 8; id++) {
+				assertEquals(IndiceVersoes.DESCONHECIDA, indice.versao(id));
+			}
+		}
+	}
+
+	@Test
+	void escritasConcorrentesFicamComAMaiorVersao() throws Exception {
+		IndiceVersoes indice = new IndiceVersoes(1 << 12, VALIDADE);
+		int threads = 8;
+		int ids = 1000;
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> tarefas = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int deslocamento = t;
+				tarefas.add(executor.submit(() -> {
+					for (long versao = 0; versao < 50; versao++) {
+						for (long id = 1; id <= ids; id++) {
+							indice.registrar(id, (versao * threads + deslocamento) % 400);
+						}
+					}
+				}));
+			}
+			for (Future<?> tarefa : tarefas) {
+				tarefa.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		for (long id = 1; id <= ids; id++) {
+			assertEquals(399, indice.versao(id));
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package com.mbalem.demo_spring_rev_jpa.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.junit.jupiter.api.Test;
+
+// Com uma permissão a menos que o pool, uma thread que já tem conexão abre
+// uma segunda (como a geração de ids) sem esperar; outras threads esperam a
+// permissão, no máximo pelo connection-timeout do pool.
+class AdmissaoConexoesTest {
+
+	@Test
+	void conexaoAninhadaNaoEsperaPorPermissao() throws Exception {
+		try (HikariDataSource pool = new HikariDataSource()) {
+			pool.setJdbcUrl("jdbc:h2:mem:admissao_conexoes");
+			pool.setMaximumPoolSize(2);
+			pool.setConnectionTimeout(250);
+			DataSource limitado = new AdmissaoConexoes(Duration.ofSeconds(60)).limitar(pool);
+
+			try (Connection externa = limitado.getConnection()) {
+				try (Connection aninhada = limitado.getConnection()) {
+					assertThat(aninhada.isValid(1)).isTrue();
+				}
+
+				// A única permissão está com esta thread: outra thread espera só até
+				// o connection-timeout do pool, e não os 60s configurados
+				CompletableFuture<Connection> outra = CompletableFuture.supplyAsync(() -> {
+					try {
+						return limitado.getConnection();
+					} catch (Exception e) {
+						throw new IllegalStateException(e);
+					}
+				});
+				assertThatThrownBy(() -> outra.get(5, TimeUnit.SECONDS))
+						.hasRootCauseInstanceOf(SQLTransientConnectionException.class);
+			}
+
+			try (Connection depois = limitado.getConnection()) {
+				assertThat(depois.isValid(1)).isTrue();
+			}
+		}
+	}
+}
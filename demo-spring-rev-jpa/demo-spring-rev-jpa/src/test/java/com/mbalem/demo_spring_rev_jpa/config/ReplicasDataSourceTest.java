@@ -0,0 +1,171 @@
+package com.mbalem.demo_spring_rev_jpa.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Roteamento com bancos H2 separados fazendo papel de primário e réplicas:
+// cada banco tem uma tabela "origem" com o próprio nome (e a de batimentos).
+class ReplicasDataSourceTest {
+
+	@Test
+	void leiturasAlternamEntreAsReplicasEEscritasFicamNoPrimario() {
+		ReplicasDataSource replicas = new ReplicasDataSource(
+				List.of(banco("replica_a"), banco("replica_b")), banco("primario"),
+				ReplicasDataSource.Selecao.ROUND_ROBIN, new ConsistenciaLeitura(), Duration.ZERO);
+		Roteador roteador = new Roteador(banco("primario"), replicas);
+
+		assertThat(List.of(roteador.ler(), roteador.ler(), roteador.ler()))
+				.containsExactly("replica_a", "replica_b", "replica_a");
+		assertThat(roteador.escrever()).isEqualTo("primario");
+	}
+
+	@Test
+	void menorLatenciaEscolheAReplicaMaisRapida() {
+		ReplicasDataSource replicas = new ReplicasDataSource(
+				List.of(banco("replica_a"), banco("replica_b")), banco("primario"),
+				ReplicasDataSource.Selecao.MENOR_LATENCIA, new ConsistenciaLeitura(), Duration.ZERO);
+		replicas.registrarLatencia(0, 5_000_000);
+		replicas.registrarLatencia(1, 1_000_000);
+
+		Roteador roteador = new Roteador(banco("primario"), replicas);
+
+		assertThat(roteador.ler()).isEqualTo("replica_b");
+		assertThat(roteador.ler()).isEqualTo("replica_b");
+
+		replicas.registrarLatencia(1, Long.MAX_VALUE);
+		assertThat(roteador.ler()).isEqualTo("replica_a");
+	}
+
+	@Test
+	void replicaForaDoArDesviaAsLeiturasParaOPrimario() {
+		JdbcDataSource inexistente = new JdbcDataSource();
+		inexistente.setURL("jdbc:h2:mem:inexistente;IFEXISTS=TRUE");
+
+		ReplicasDataSource replicas = new ReplicasDataSource(
+				List.of(inexistente), banco("primario"),
+				ReplicasDataSource.Selecao.ROUND_ROBIN, new ConsistenciaLeitura(), Duration.ZERO);
+		Roteador roteador = new Roteador(banco("primario"), replicas);
+
+		assertThat(roteador.ler()).isEqualTo("primario");
+		assertThat(replicas.escolher(0)).isNegative();
+	}
+
+	@Test
+	void leituraComTokenEsperaAReplicaAlcancarAEscrita() {
+		DataSource replica = banco("replica_atrasada");
+		ConsistenciaLeitura consistencia = new ConsistenciaLeitura();
+		ReplicasDataSource replicas = new ReplicasDataSource(
+				List.of(replica), banco("primario"),
+				ReplicasDataSource.Selecao.ROUND_ROBIN, consistencia, Duration.ZERO);
+		Roteador roteador = new Roteador(banco("primario"), replicas);
+
+		// Escrita desta instância: a réplica ainda não recebeu batimento depois
+		// dela. Sem token, a leitura continua na réplica, mas não preenche caches.
+		ConsistenciaLeitura.Token escrita = consistencia.registrarEscrita();
+		assertThat(roteador.ler()).isEqualTo("replica_atrasada");
+		assertThat(consistencia.ler(() -> roteador.ler() + ":" + consistencia.preencheCaches()))
+				.isEqualTo("replica_atrasada:false");
+
+		try (ConsistenciaLeitura.Exigencia exigencia = consistencia.exigir(escrita)) {
+			assertThat(roteador.ler()).isEqualTo("primario");
+
+			bater(replica, consistencia.instancia(), consistencia.agora());
+			assertThat(roteador.ler()).isEqualTo("replica_atrasada");
+		}
+
+		// A réplica já enxerga a última escrita: a leitura pode preencher os caches
+		assertThat(consistencia.ler(() -> roteador.ler() + ":" + consistencia.preencheCaches()))
+				.isEqualTo("replica_atrasada:true");
+
+		// Token de uma escrita feita por outra instância
+		try (ConsistenciaLeitura.Exigencia exigencia = consistencia.exigir(new ConsistenciaLeitura.Token("outra", 100))) {
+			assertThat(roteador.ler()).isEqualTo("primario");
+
+			bater(replica, "outra", 101);
+			assertThat(roteador.ler()).isEqualTo("replica_atrasada");
+		}
+		assertThat(consistencia.exigido()).isNull();
+	}
+
+	@Test
+	void leituraAtualizadaSemReplicaEmDiaVaiAoPrimario() {
+		ConsistenciaLeitura consistencia = new ConsistenciaLeitura();
+		ReplicasDataSource replicas = new ReplicasDataSource(
+				List.of(banco("replica_parada")), banco("primario"),
+				ReplicasDataSource.Selecao.ROUND_ROBIN, consistencia, Duration.ZERO);
+		Roteador roteador = new Roteador(banco("primario"), replicas);
+
+		consistencia.registrarEscrita();
+		assertThat(consistencia.lerAtualizado(roteador::ler)).isEqualTo("primario");
+	}
+
+	@Test
+	void tokenForaDoFormatoEIgnorado() {
+		assertThat(ConsistenciaLeitura.Token.ler("abc:12")).isEqualTo(new ConsistenciaLeitura.Token("abc", 12));
+		assertThat(ConsistenciaLeitura.Token.ler("abc")).isNull();
+		assertThat(ConsistenciaLeitura.Token.ler("abc:x")).isNull();
+	}
+
+	// Banco H2 em memória que responde "select nome from origem" com o próprio nome
+	private static DataSource banco(String nome) {
+		JdbcDataSource banco = new JdbcDataSource();
+		banco.setURL("jdbc:h2:mem:" + nome + ";DB_CLOSE_DELAY=-1");
+		JdbcTemplate jdbc = new JdbcTemplate(banco);
+		jdbc.execute("create table if not exists origem (nome varchar(20))");
+		jdbc.execute("create table if not exists batimentos (instancia varchar(36) primary key, instante bigint not null)");
+		jdbc.update("delete from origem");
+		jdbc.update("insert into origem (nome) values (?)", nome);
+		return banco;
+	}
+
+	// Simula a chegada de um batimento do primário à réplica
+	private static void bater(DataSource replica, String instancia, long instante) {
+		JdbcTemplate jdbc = new JdbcTemplate(replica);
+		jdbc.update("delete from batimentos where instancia = ?", instancia);
+		jdbc.update("insert into batimentos (instancia, instante) values (?, ?)", instancia, instante);
+	}
+
+	// Mesma montagem de RoteamentoLeitura, com transações de JDBC puro
+	private static class Roteador {
+
+		private final JdbcTemplate jdbc;
+
+		private final TransactionTemplate leitura;
+
+		private final TransactionTemplate escrita;
+
+		Roteador(DataSource primario, ReplicasDataSource replicas) {
+			LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primario);
+			proxy.setReadOnlyDataSource(replicas);
+
+			DataSourceTransactionManager transacoes = new DataSourceTransactionManager(proxy);
+			this.jdbc = new JdbcTemplate(proxy);
+			this.leitura = new TransactionTemplate(transacoes);
+			this.leitura.setReadOnly(true);
+			this.escrita = new TransactionTemplate(transacoes);
+		}
+
+		String ler() {
+			return leitura.execute(status -> origem());
+		}
+
+		String escrever() {
+			return escrita.execute(status -> origem());
+		}
+
+		private String origem() {
+			return jdbc.queryForObject("select nome from origem", String.class);
+		}
+	}
+}
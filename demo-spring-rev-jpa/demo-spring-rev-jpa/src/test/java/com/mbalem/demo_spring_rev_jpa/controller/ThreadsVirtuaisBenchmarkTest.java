@@ -0,0 +1,172 @@
+package com.mbalem.demo_spring_rev_jpa.controller;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.mbalem.demo_spring_rev_jpa.DemoSpringRevJpaApplication;
+import com.mbalem.demo_spring_rev_jpa.dao.AutorDao;
+import com.mbalem.demo_spring_rev_jpa.entity.Autor;
+import com.mbalem.demo_spring_rev_jpa.entity.InfoAutor;
+
+// Compara o Tomcat com o pool de threads de plataforma (padrão) e com threads
+// virtuais (spring.threads.virtual.enabled=true, com AdmissaoConexoes) nos
+// endpoints existentes: GET /autores/{id}, GET /autores (paginado),
+// GET /autores/nomeOrSobrenome e PATCH /autores/{id}.
+// Sobe a aplicação uma vez em cada modo, dispara CLIENTES requisições
+// simultâneas e mede vazão, latências (p50/p99) e erros.
+//
+// Não roda no build normal. Para executar:
+//   mvn test -Dtest=ThreadsVirtuaisBenchmarkTest -Dbenchmark=true
+// Por padrão usa o H2 do perfil "test"; com um MySQL (onde cada requisição
+// espera de verdade pelo banco) a diferença entre os modos aparece melhor:
+//   -Dbenchmark.url=jdbc:mysql://... -Dbenchmark.usuario=... -Dbenchmark.senha=...
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ThreadsVirtuaisBenchmarkTest {
+
+	private static final int AUTORES = 5_000;
+
+	private static final int CLIENTES = 1_000;
+
+	private static final int REQUISICOES_POR_CLIENTE = 20;
+
+	private static final int REQUISICOES_AQUECIMENTO = 5_000;
+
+	@Test
+	void compararThreadsDePlataformaEVirtuais() throws Exception {
+		Medicao plataforma = medir(false);
+		Medicao virtuais = medir(true);
+
+		System.out.printf("%n%-22s %12s %10s %10s %8s%n", CLIENTES + " clientes", "req/s", "p50 ms", "p99 ms", "erros");
+		imprimir("threads de plataforma", plataforma);
+		imprimir("threads virtuais", virtuais);
+	}
+
+	private record Medicao(double requisicoesPorSegundo, double p50Ms, double p99Ms, int erros) {
+	}
+
+	private Medicao medir(boolean virtuais) throws Exception {
+		// Argumentos de linha de comando: têm precedência sobre os arquivos
+		// application*.properties
+		List<String> argumentos = new ArrayList<>(List.of(
+				"--server.port=0",
+				"--spring.main.banner-mode=off",
+				"--spring.threads.virtual.enabled=" + virtuais));
+		String url = System.getProperty("benchmark.url");
+		if (url != null) {
+			argumentos.add("--spring.datasource.url=" + url);
+			argumentos.add("--spring.datasource.driverClassName=com.mysql.cj.jdbc.Driver");
+			argumentos.add("--spring.datasource.username=" + System.getProperty("benchmark.usuario", "root"));
+			argumentos.add("--spring.datasource.password=" + System.getProperty("benchmark.senha", "root"));
+			argumentos.add("--spring.jpa.hibernate.ddl-auto=update");
+		} else {
+			// Um banco H2 separado para cada modo
+			argumentos.add("--spring.datasource.url=jdbc:h2:mem:benchmark_" + virtuais + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+		}
+
+		try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(DemoSpringRevJpaApplication.class)
+				.profiles("test")
+				.run(argumentos.toArray(String[]::new))) {
+
+			List<Long> ids = popular(contexto.getBean(AutorDao.class));
+			int porta = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+
+			try (HttpClient cliente = HttpClient.newBuilder()
+					.executor(Executors.newVirtualThreadPerTaskExecutor())
+					.build()) {
+
+				for (int i = 0; i < REQUISICOES_AQUECIMENTO; i++) {
+					enviar(cliente, porta, ids);
+				}
+
+				long[] latencias = new long[CLIENTES * REQUISICOES_POR_CLIENTE];
+				AtomicInteger proxima = new AtomicInteger();
+				AtomicInteger erros = new AtomicInteger();
+
+				long inicio = System.nanoTime();
+				try (ExecutorService clientes = Executors.newVirtualThreadPerTaskExecutor()) {
+					for (int c = 0; c < CLIENTES; c++) {
+						clientes.submit(() -> {
+							for (int r = 0; r < REQUISICOES_POR_CLIENTE; r++) {
+								long antes = System.nanoTime();
+								boolean ok = enviar(cliente, porta, ids);
+								latencias[proxima.getAndIncrement()] = System.nanoTime() - antes;
+								if (!ok) {
+									erros.incrementAndGet();
+								}
+							}
+						});
+					}
+				}
+				long duracao = System.nanoTime() - inicio;
+
+				Arrays.sort(latencias);
+				return new Medicao(
+						latencias.length / (duracao / 1e9),
+						latencias[latencias.length / 2] / 1e6,
+						latencias[(int) (latencias.length * 0.99)] / 1e6,
+						erros.get());
+			}
+		}
+	}
+
+	private static List<Long> popular(AutorDao dao) {
+		List<Autor> autores = new ArrayList<>();
+		for (int i = 0; i < AUTORES; i++) {
+			InfoAutor info = new InfoAutor();
+			info.setCargo(i % 2 == 0 ? "Professor" : "Pesquisador");
+
+			Autor autor = new Autor();
+			autor.setNome("Nome " + i);
+			autor.setSobrenome("Sobrenome " + i);
+			autor.setInfoAutor(info);
+			autores.add(autor);
+		}
+		dao.saveAll(autores);
+		return autores.stream().map(Autor::getId).toList();
+	}
+
+	// Uma requisição de um dos endpoints, sorteado (leituras são a maioria)
+	private static boolean enviar(HttpClient cliente, int porta, List<Long> ids) {
+		ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+		long id = ids.get(aleatorio.nextInt(ids.size()));
+		String base = "http://localhost:" + porta + "/autores";
+
+		HttpRequest requisicao = switch (aleatorio.nextInt(10)) {
+			case 0, 1, 2, 3 -> HttpRequest.newBuilder(URI.create(base + "/" + id)).GET().build();
+			case 4, 5 -> HttpRequest.newBuilder(URI.create(base + "?after=" + id + "&limit=20")).GET().build();
+			case 6, 7 -> HttpRequest.newBuilder(URI.create(base + "/nomeOrSobrenome?termo=" + (id % 1000))).GET().build();
+			default -> HttpRequest.newBuilder(URI.create(base + "/" + id))
+					.header("Content-Type", "application/json")
+					.method("PATCH", HttpRequest.BodyPublishers.ofString("{\"sobrenome\":\"Sobrenome " + id + "\"}"))
+					.build();
+		};
+
+		try {
+			int status = cliente.send(requisicao, HttpResponse.BodyHandlers.discarding()).statusCode();
+			return status < 400;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	private static void imprimir(String nome, Medicao medicao) {
+		System.out.printf("%-22s %12.0f %10.2f %10.2f %8d%n", nome, medicao.requisicoesPorSegundo(),
+				medicao.p50Ms(), medicao.p99Ms(), medicao.erros());
+	}
+
+}
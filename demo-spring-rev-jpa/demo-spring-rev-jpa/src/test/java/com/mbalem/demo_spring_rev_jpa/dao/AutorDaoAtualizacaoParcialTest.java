@@ -0,0 +1,86 @@
+package com.mbalem.demo_spring_rev_jpa.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.mbalem.demo_spring_rev_jpa.dto.AutorAlteracao;
+import com.mbalem.demo_spring_rev_jpa.entity.Autor;
+
+// updateParcial grava só as colunas informadas (e a versão), e a nova versão
+// só é devolvida quando a versão esperada foi informada.
+@SpringBootTest
+@ActiveProfiles("test")
+class AutorDaoAtualizacaoParcialTest {
+
+	@Autowired
+	private AutorDao dao;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	private Autor autor;
+
+	@BeforeEach
+	void preparar() {
+		autor = new Autor();
+		autor.setNome("Lima");
+		autor.setSobrenome("Barreto");
+		dao.save(autor);
+	}
+
+	// O banco é compartilhado com as outras classes de teste
+	@AfterEach
+	void limpar() {
+		dao.deleteAllById(List.of(autor.getId()));
+	}
+
+	@Test
+	void alteraSoAsColunasInformadas() {
+		assertThat(dao.updateParcial(autor.getId(), new AutorAlteracao("Afonso", null), null))
+				.isEqualTo(AutorDao.VERSAO_NAO_LIDA);
+		assertThat(linha()).containsEntry("NOME", "Afonso").containsEntry("SOBRENOME", "Barreto")
+				.containsEntry("VERSAO", 1L);
+
+		assertThat(dao.updateParcial(autor.getId(), new AutorAlteracao(null, "Henriques"), null))
+				.isEqualTo(AutorDao.VERSAO_NAO_LIDA);
+		assertThat(linha()).containsEntry("NOME", "Afonso").containsEntry("SOBRENOME", "Henriques")
+				.containsEntry("VERSAO", 2L);
+
+		assertThat(dao.findById(autor.getId()).getSobrenome()).isEqualTo("Henriques");
+	}
+
+	@Test
+	void versaoEsperadaDevolveANovaVersao() {
+		assertThat(dao.updateParcial(autor.getId(), new AutorAlteracao("Afonso", null), List.of(0L))).isEqualTo(1L);
+
+		assertThatThrownBy(() -> dao.updateParcial(autor.getId(), new AutorAlteracao("Outro", null), List.of(0L)))
+				.isInstanceOf(OptimisticLockingFailureException.class);
+		assertThat(linha()).containsEntry("NOME", "Afonso").containsEntry("VERSAO", 1L);
+
+		// Várias versões aceitas (If-Match com mais de um ETag): a nova é lida
+		assertThat(dao.updateParcial(autor.getId(), new AutorAlteracao(null, "Henriques"), List.of(0L, 1L)))
+				.isEqualTo(2L);
+	}
+
+	@Test
+	void autorInexistenteDevolveNull() {
+		assertThat(dao.updateParcial(0L, new AutorAlteracao("Ninguem", null), null)).isNull();
+		assertThat(dao.updateParcial(0L, new AutorAlteracao("Ninguem", null), List.of(0L))).isNull();
+	}
+
+	private Map<String, Object> linha() {
+		return jdbc.queryForMap("select nome, sobrenome, versao from autores where id_autor = ?", autor.getId());
+	}
+}
@@ -0,0 +1,108 @@
+package com.mbalem.demo_spring_rev_jpa.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.mbalem.demo_spring_rev_jpa.dto.AutorAlteracao;
+import com.mbalem.demo_spring_rev_jpa.entity.Autor;
+import com.mbalem.demo_spring_rev_jpa.entity.InfoAutor;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// As escritas por id tiram do cache de segundo nível só o autor alterado: os
+// demais continuam em cache, e o alterado é lido de novo do banco.
+@SpringBootTest
+@ActiveProfiles("test")
+class AutorDaoCacheTest {
+
+	@Autowired
+	private AutorDao dao;
+
+	@Autowired
+	private EntityManagerFactory emf;
+
+	private Cache cache;
+
+	private Autor alterado;
+
+	private Autor outro;
+
+	@BeforeEach
+	void preparar() {
+		alterado = novo("Graciliano", "Ramos");
+		outro = novo("Jorge", "Amado");
+		dao.saveAll(List.of(alterado, outro));
+
+		cache = emf.unwrap(SessionFactory.class).getCache();
+		cache.evictAllRegions();
+		dao.findById(alterado.getId());
+		dao.findById(outro.getId());
+		assertThat(cache.contains(Autor.class, alterado.getId())).isTrue();
+		assertThat(cache.contains(Autor.class, outro.getId())).isTrue();
+	}
+
+	// O banco é compartilhado com as outras classes de teste
+	@AfterEach
+	void limpar() {
+		dao.deleteAllById(List.of(alterado.getId(), outro.getId()));
+	}
+
+	@Test
+	void updateMantemOsOutrosAutoresEmCache() {
+		Long versao = dao.update(autor(alterado.getId(), "Graciliano", "Ramos Filho"), List.of(alterado.getVersao()));
+
+		assertThat(cache.contains(Autor.class, outro.getId())).isTrue();
+		Autor lido = dao.findById(alterado.getId());
+		assertThat(lido.getSobrenome()).isEqualTo("Ramos Filho");
+		assertThat(lido.getVersao()).isEqualTo(versao);
+	}
+
+	@Test
+	void updateParcialMantemOsOutrosAutoresEmCache() {
+		dao.updateParcial(alterado.getId(), new AutorAlteracao("Graça", null), null);
+
+		assertThat(cache.contains(Autor.class, outro.getId())).isTrue();
+		assertThat(dao.findById(alterado.getId()).getNome()).isEqualTo("Graça");
+	}
+
+	@Test
+	void saveInfoAutorMantemOsOutrosAutoresEmCache() {
+		InfoAutor info = new InfoAutor();
+		info.setCargo("Romancista");
+		dao.saveInfoAutor(info, alterado.getId(), null);
+
+		assertThat(cache.contains(Autor.class, outro.getId())).isTrue();
+		assertThat(dao.findById(alterado.getId()).getInfoAutor().getCargo()).isEqualTo("Romancista");
+	}
+
+	@Test
+	void deleteMantemOsOutrosAutoresEmCache() {
+		assertThat(dao.delete(alterado.getId())).isTrue();
+
+		assertThat(cache.contains(Autor.class, outro.getId())).isTrue();
+		assertThat(dao.findById(alterado.getId())).isNull();
+	}
+
+	private static Autor novo(String nome, String sobrenome) {
+		Autor autor = new Autor();
+		autor.setNome(nome);
+		autor.setSobrenome(sobrenome);
+		return autor;
+	}
+
+	private static Autor autor(Long id, String nome, String sobrenome) {
+		Autor autor = novo(nome, sobrenome);
+		autor.setId(id);
+		return autor;
+	}
+}
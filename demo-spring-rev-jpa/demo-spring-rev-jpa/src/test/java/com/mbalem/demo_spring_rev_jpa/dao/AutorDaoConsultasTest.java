@@ -0,0 +1,106 @@
+package com.mbalem.demo_spring_rev_jpa.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.mbalem.demo_spring_rev_jpa.dto.AutorResumo;
+import com.mbalem.demo_spring_rev_jpa.entity.Autor;
+import com.mbalem.demo_spring_rev_jpa.entity.InfoAutor;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Garante que as consultas de listagem trazem o cargo do InfoAutor na mesma
+// consulta (sem o problema N+1): cada chamada deve executar um único comando
+// SQL e devolver o cargo de todos os autores.
+@SpringBootTest
+@ActiveProfiles("test")
+class AutorDaoConsultasTest {
+
+	private static final int QUANTIDADE = 5;
+
+	@Autowired
+	private AutorDao dao;
+
+	@Autowired
+	private EntityManagerFactory emf;
+
+	private Statistics estatisticas;
+
+	@BeforeEach
+	void preparar() {
+		List<Autor> autores = new ArrayList<>();
+		for (int i = 0; i < QUANTIDADE; i++) {
+			InfoAutor info = new InfoAutor();
+			info.setCargo("Professor");
+
+			Autor autor = new Autor();
+			autor.setNome("Machado " + i);
+			autor.setSobrenome("de Assis");
+			autor.setInfoAutor(info);
+			autores.add(autor);
+		}
+		dao.saveAll(autores);
+
+		// Começa cada contagem com os caches vazios, para medir o acesso ao banco
+		SessionFactory sessionFactory = emf.unwrap(SessionFactory.class);
+		sessionFactory.getCache().evictAllRegions();
+		estatisticas = sessionFactory.getStatistics();
+		estatisticas.clear();
+	}
+
+	@Test
+	void findByAllExecutaUmaConsulta() {
+		List<AutorResumo> autores = dao.findByAll(null, 100).itens();
+
+		assertThat(autores).hasSizeGreaterThanOrEqualTo(QUANTIDADE);
+		assertThat(cargos(autores)).doesNotContainNull();
+		assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void findAllByNomeOrSobrenomeExecutaUmaConsulta() {
+		List<AutorResumo> autores = dao.findAllByNomeOrSobrenome("machado");
+
+		assertThat(autores).hasSizeGreaterThanOrEqualTo(QUANTIDADE);
+		assertThat(cargos(autores)).doesNotContainNull();
+		assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void findByCargoExecutaUmaConsulta() {
+		List<AutorResumo> autores = dao.findByCargo("professor");
+
+		assertThat(autores).hasSizeGreaterThanOrEqualTo(QUANTIDADE);
+		assertThat(cargos(autores)).doesNotContainNull();
+		assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void findByIdExecutaUmaConsulta() {
+		Long id = dao.findByAll(null, 1).itens().get(0).id();
+		emf.unwrap(SessionFactory.class).getCache().evictAllRegions();
+		estatisticas.clear();
+
+		Autor autor = dao.findById(id);
+
+		// Acessa o cargo fora da transação: se o InfoAutor não tivesse sido
+		// carregado, falharia com LazyInitializationException
+		assertThat(autor.getInfoAutor().getCargo()).isEqualTo("Professor");
+		assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	private static List<String> cargos(List<AutorResumo> autores) {
+		return autores.stream().map(AutorResumo::cargo).toList();
+	}
+
+}
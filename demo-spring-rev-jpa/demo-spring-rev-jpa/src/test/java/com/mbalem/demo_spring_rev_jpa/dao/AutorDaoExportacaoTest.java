@@ -0,0 +1,92 @@
+package com.mbalem.demo_spring_rev_jpa.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.mbalem.demo_spring_rev_jpa.entity.Autor;
+import com.mbalem.demo_spring_rev_jpa.entity.InfoAutor;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// A exportação percorre todos os autores em ordem de id, com o InfoAutor de
+// cada um, em uma única consulta, mesmo passando do tamanho do bloco em que o
+// contexto de persistência é limpo.
+@SpringBootTest
+@ActiveProfiles("test")
+class AutorDaoExportacaoTest {
+
+	// Mais que LOTE_EXPORTACAO (1000), para passar por um clear()
+	private static final int QUANTIDADE = 1_050;
+
+	@Autowired
+	private AutorDao dao;
+
+	@Autowired
+	private EntityManagerFactory emf;
+
+	private final List<Long> ids = new ArrayList<>();
+
+	@BeforeEach
+	void preparar() {
+		List<Autor> autores = new ArrayList<>();
+		for (int i = 0; i < QUANTIDADE; i++) {
+			InfoAutor info = new InfoAutor();
+			info.setCargo("Professor");
+
+			Autor autor = new Autor();
+			autor.setNome("Exportado " + i);
+			autor.setSobrenome("Streaming");
+			autor.setInfoAutor(info);
+			autores.add(autor);
+		}
+		dao.saveAll(autores);
+		autores.forEach(autor -> ids.add(autor.getId()));
+	}
+
+	// O banco é compartilhado com as outras classes de teste
+	@AfterEach
+	void limpar() {
+		dao.deleteAllById(ids);
+	}
+
+	@Test
+	void exportaTodosEmOrdemComOInfoAutorEmUmaConsulta() {
+		SessionFactory sessionFactory = emf.unwrap(SessionFactory.class);
+		sessionFactory.getCache().evictAllRegions();
+		Statistics estatisticas = sessionFactory.getStatistics();
+		estatisticas.clear();
+
+		List<Long> exportados = new ArrayList<>();
+		List<String> cargos = new ArrayList<>();
+		dao.exportAll(autor -> {
+			exportados.add(autor.getId());
+			cargos.add(autor.getInfoAutor().getCargo());
+		});
+
+		assertThat(exportados).isSorted().doesNotHaveDuplicates().containsSubsequence(ids);
+		assertThat(cargos).doesNotContainNull();
+		assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void exportacaoNaoPreencheOCacheDeSegundoNivel() {
+		SessionFactory sessionFactory = emf.unwrap(SessionFactory.class);
+		sessionFactory.getCache().evictAllRegions();
+
+		dao.exportAll(autor -> {
+		});
+
+		assertThat(sessionFactory.getCache().contains(Autor.class, ids.get(0))).isFalse();
+	}
+}
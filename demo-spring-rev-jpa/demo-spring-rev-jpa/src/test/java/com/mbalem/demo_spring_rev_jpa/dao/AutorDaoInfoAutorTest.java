@@ -0,0 +1,98 @@
+package com.mbalem.demo_spring_rev_jpa.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.mbalem.demo_spring_rev_jpa.entity.Autor;
+import com.mbalem.demo_spring_rev_jpa.entity.InfoAutor;
+
+// Gravações concorrentes do InfoAutor de um autor que ainda não tem um: as
+// que perdem a corrida falham antes de inserir, e nenhum InfoAutor fica sem
+// autor. Com versões esperadas (If-Match), um autor em outra versão não é
+// alterado.
+@SpringBootTest
+@ActiveProfiles("test")
+class AutorDaoInfoAutorTest {
+
+	private static final String ORFAOS = """
+			select count(1) from info_autores i
+			where not exists (select 1 from autores a where a.id_info = i.id_info)
+			""";
+
+	@Autowired
+	private AutorDao dao;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Test
+	void gravacoesConcorrentesNaoDeixamInfoAutorOrfao() throws Exception {
+		Autor autor = new Autor();
+		autor.setNome("Cecilia");
+		autor.setSobrenome("Meireles");
+		dao.save(autor);
+		int orfaosAntes = jdbc.queryForObject(ORFAOS, Integer.class);
+
+		CountDownLatch largada = new CountDownLatch(1);
+		AtomicInteger gravados = new AtomicInteger();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			InfoAutor info = new InfoAutor();
+			info.setCargo("Poeta " + i);
+			threads.add(Thread.ofPlatform().start(() -> {
+				try {
+					largada.await();
+					dao.saveInfoAutor(info, autor.getId(), null);
+					gravados.incrementAndGet();
+				} catch (InterruptedException | RuntimeException e) {
+					// Conflito de versão com outra gravação
+				}
+			}));
+		}
+		largada.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		try {
+			assertThat(gravados).hasPositiveValue();
+			assertThat(jdbc.queryForObject(ORFAOS, Integer.class)).isEqualTo(orfaosAntes);
+			assertThat(dao.findById(autor.getId()).getInfoAutor().getCargo()).startsWith("Poeta");
+		} finally {
+			dao.delete(autor.getId());
+		}
+	}
+
+	@Test
+	void versaoDiferenteDaEsperadaNaoGravaOInfoAutor() {
+		Autor autor = new Autor();
+		autor.setNome("Rachel");
+		autor.setSobrenome("de Queiroz");
+		dao.save(autor);
+
+		try {
+			InfoAutor info = new InfoAutor();
+			info.setCargo("Cronista");
+			assertThatThrownBy(() -> dao.saveInfoAutor(info, autor.getId(), List.of(autor.getVersao() + 1)))
+					.isInstanceOf(OptimisticLockingFailureException.class);
+			assertThat(dao.findById(autor.getId()).getInfoAutor()).isNull();
+
+			assertThat(dao.saveInfoAutor(info, autor.getId(), List.of(autor.getVersao()))).isNotNull();
+			assertThat(dao.findById(autor.getId()).getVersao()).isEqualTo(autor.getVersao() + 1);
+		} finally {
+			dao.delete(autor.getId());
+		}
+	}
+}
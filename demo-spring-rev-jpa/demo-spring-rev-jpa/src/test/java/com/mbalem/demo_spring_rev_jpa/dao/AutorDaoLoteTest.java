@@ -0,0 +1,79 @@
+package com.mbalem.demo_spring_rev_jpa.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.mbalem.demo_spring_rev_jpa.entity.Autor;
+import com.mbalem.demo_spring_rev_jpa.entity.InfoAutor;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// saveAll grava em lotes JDBC (hibernate.jdbc.batch_size = 50): os INSERTs
+// são agrupados, em vez de um comando por autor e por InfoAutor, e o total
+// de autores acompanha a quantidade gravada.
+@SpringBootTest
+@ActiveProfiles("test")
+class AutorDaoLoteTest {
+
+	// Mais de um flush/clear (a cada 50 autores), com um bloco incompleto no fim
+	private static final int QUANTIDADE = 120;
+
+	@Autowired
+	private AutorDao dao;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private EntityManagerFactory emf;
+
+	private final List<Long> ids = new ArrayList<>();
+
+	// O banco é compartilhado com as outras classes de teste
+	@AfterEach
+	void limpar() {
+		dao.deleteAllById(ids);
+	}
+
+	@Test
+	void saveAllGravaEmLotes() {
+		List<Autor> autores = new ArrayList<>();
+		for (int i = 0; i < QUANTIDADE; i++) {
+			InfoAutor info = new InfoAutor();
+			info.setCargo("Professor");
+
+			Autor autor = new Autor();
+			autor.setNome("Lote " + i);
+			autor.setSobrenome("Batching");
+			autor.setInfoAutor(info);
+			autores.add(autor);
+		}
+
+		long antes = dao.getTotalElements();
+		Statistics estatisticas = emf.unwrap(SessionFactory.class).getStatistics();
+		estatisticas.clear();
+
+		dao.saveAll(autores);
+		autores.forEach(autor -> ids.add(autor.getId()));
+
+		assertThat(estatisticas.getEntityInsertCount()).isEqualTo(2L * QUANTIDADE);
+		// Um comando por lote de cada tabela, mais o contador e os blocos de ids
+		assertThat(estatisticas.getPrepareStatementCount()).isLessThan(QUANTIDADE / 5);
+
+		assertThat(ids).doesNotContainNull().doesNotHaveDuplicates();
+		assertThat(jdbc.queryForObject("select count(1) from autores a join info_autores i on i.id_info = a.id_info "
+				+ "where a.sobrenome = 'Batching'", Integer.class)).isEqualTo(QUANTIDADE);
+		assertThat(dao.getTotalElements()).isEqualTo(antes + QUANTIDADE);
+	}
+}
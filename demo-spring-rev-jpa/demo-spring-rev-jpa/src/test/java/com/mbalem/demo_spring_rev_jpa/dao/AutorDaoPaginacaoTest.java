@@ -0,0 +1,91 @@
+package com.mbalem.demo_spring_rev_jpa.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.mbalem.demo_spring_rev_jpa.dto.AutorResumo;
+import com.mbalem.demo_spring_rev_jpa.dto.Pagina;
+import com.mbalem.demo_spring_rev_jpa.entity.Autor;
+import com.mbalem.demo_spring_rev_jpa.entity.InfoAutor;
+
+// Paginação por cursor: seguindo "proximoCursor" a partir de um cursor, cada
+// autor aparece uma única vez, em ordem de id, e a última página não tem
+// próximo cursor.
+@SpringBootTest
+@ActiveProfiles("test")
+class AutorDaoPaginacaoTest {
+
+	private static final int QUANTIDADE = 7;
+
+	@Autowired
+	private AutorDao dao;
+
+	private final List<Long> ids = new ArrayList<>();
+
+	@BeforeEach
+	void preparar() {
+		List<Autor> autores = new ArrayList<>();
+		for (int i = 0; i < QUANTIDADE; i++) {
+			InfoAutor info = new InfoAutor();
+			info.setCargo("Professor");
+
+			Autor autor = new Autor();
+			autor.setNome("Paginado " + i);
+			autor.setSobrenome("Cursor");
+			autor.setInfoAutor(info);
+			autores.add(autor);
+		}
+		dao.saveAll(autores);
+		autores.forEach(autor -> ids.add(autor.getId()));
+	}
+
+	// O banco é compartilhado com as outras classes de teste
+	@AfterEach
+	void limpar() {
+		dao.deleteAllById(ids);
+	}
+
+	@Test
+	void cursorContinuaDePaginaEmPagina() {
+		List<Long> lidos = new ArrayList<>();
+		List<Integer> tamanhos = new ArrayList<>();
+
+		Long cursor = ids.get(0) - 1;
+		do {
+			Pagina<AutorResumo> pagina = dao.findByAll(cursor, 3);
+			pagina.itens().forEach(autor -> lidos.add(autor.id()));
+			tamanhos.add(pagina.itens().size());
+			cursor = pagina.proximoCursor();
+			if (cursor != null) {
+				assertThat(cursor).isEqualTo(pagina.itens().get(pagina.itens().size() - 1).id());
+			}
+		} while (cursor != null);
+
+		assertThat(lidos).isEqualTo(ids);
+		assertThat(tamanhos).containsExactly(3, 3, 1);
+	}
+
+	@Test
+	void paginaCompletaSemMaisAutoresNaoTemProximoCursor() {
+		Pagina<AutorResumo> pagina = dao.findByAll(ids.get(QUANTIDADE - 4), 3);
+
+		assertThat(pagina.itens()).extracting(AutorResumo::id).isEqualTo(ids.subList(QUANTIDADE - 3, QUANTIDADE));
+		assertThat(pagina.proximoCursor()).isNull();
+	}
+
+	@Test
+	void limiteAcimaDoMaximoEReduzido() {
+		assertThat(dao.findByAll(ids.get(0) - 1, AutorDao.LIMITE_MAXIMO + 1).itens())
+				.hasSizeLessThanOrEqualTo(AutorDao.LIMITE_MAXIMO)
+				.extracting(AutorResumo::id).containsSubsequence(ids);
+	}
+}
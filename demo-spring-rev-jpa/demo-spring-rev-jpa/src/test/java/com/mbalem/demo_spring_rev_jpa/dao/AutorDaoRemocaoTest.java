@@ -0,0 +1,110 @@
+package com.mbalem.demo_spring_rev_jpa.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.mbalem.demo_spring_rev_jpa.entity.Autor;
+import com.mbalem.demo_spring_rev_jpa.entity.InfoAutor;
+
+// As remoções apagam o autor e o seu InfoAutor e baixam o total de autores
+// na mesma transação, exatamente pela quantidade removida.
+@SpringBootTest
+@ActiveProfiles("test")
+class AutorDaoRemocaoTest {
+
+	@Autowired
+	private AutorDao dao;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	private final List<Long> ids = new ArrayList<>();
+
+	// O banco é compartilhado com as outras classes de teste
+	@AfterEach
+	void limpar() {
+		dao.deleteAllById(ids);
+	}
+
+	@Test
+	void deleteRemoveOInfoAutorEBaixaOTotal() {
+		Autor autor = gravar("Removido", "Professor", 1).get(0);
+		Long info = autor.getInfoAutor().getId();
+		long antes = dao.getTotalElements();
+
+		assertThat(dao.delete(autor.getId())).isTrue();
+
+		assertThat(dao.getTotalElements()).isEqualTo(antes - 1);
+		assertThat(contar("info_autores", "id_info", List.of(info))).isZero();
+		assertThat(dao.findById(autor.getId())).isNull();
+
+		// Um id que não existe (mais) não muda nada
+		assertThat(dao.delete(autor.getId())).isFalse();
+		assertThat(dao.getTotalElements()).isEqualTo(antes - 1);
+	}
+
+	@Test
+	void deleteAllByIdContaSoOsIdsExistentes() {
+		List<Autor> autores = gravar("Em massa", "Professor", 4);
+		List<Long> infos = autores.stream().map(autor -> autor.getInfoAutor().getId()).toList();
+		long antes = dao.getTotalElements();
+
+		List<Long> alvos = new ArrayList<>(ids);
+		alvos.add(0L); // id que não existe
+
+		assertThat(dao.deleteAllById(alvos)).isEqualTo(4);
+
+		assertThat(dao.getTotalElements()).isEqualTo(antes - 4);
+		assertThat(contar("autores", "id_autor", ids)).isZero();
+		assertThat(contar("info_autores", "id_info", infos)).isZero();
+		assertThat(dao.getTotalElements())
+				.isEqualTo(jdbc.queryForObject("select count(1) from autores", Long.class));
+	}
+
+	// Mais autores do cargo que o bloco de remoção (LIMITE_IN = 1000)
+	@Test
+	void deleteAllByCargoRemoveEmBlocosEBaixaOTotal() {
+		List<Autor> autores = gravar("Cargo", "Revisor de Blocos", 1_005);
+		List<Long> infos = autores.stream().map(autor -> autor.getInfoAutor().getId()).toList();
+		Autor mantido = gravar("Mantido", "Professor", 1).get(0);
+		long antes = dao.getTotalElements();
+
+		assertThat(dao.deleteAllByCargo(" REVISOR de blocos")).isEqualTo(1_005);
+
+		assertThat(dao.getTotalElements()).isEqualTo(antes - 1_005);
+		assertThat(dao.findByCargo("revisor de blocos")).isEmpty();
+		assertThat(contar("info_autores", "id_info", infos)).isZero();
+		assertThat(dao.findById(mantido.getId())).isNotNull();
+	}
+
+	private List<Autor> gravar(String nome, String cargo, int quantidade) {
+		List<Autor> autores = new ArrayList<>();
+		for (int i = 0; i < quantidade; i++) {
+			InfoAutor info = new InfoAutor();
+			info.setCargo(cargo);
+
+			Autor autor = new Autor();
+			autor.setNome(nome + " " + i);
+			autor.setSobrenome("Remocao");
+			autor.setInfoAutor(info);
+			autores.add(autor);
+		}
+		dao.saveAll(autores);
+		autores.forEach(autor -> ids.add(autor.getId()));
+		return autores;
+	}
+
+	private int contar(String tabela, String coluna, List<Long> chaves) {
+		return jdbc.queryForObject("select count(1) from %s where %s in (%s)".formatted(tabela, coluna,
+				String.join(", ", chaves.stream().map(String::valueOf).toList())), Integer.class);
+	}
+}
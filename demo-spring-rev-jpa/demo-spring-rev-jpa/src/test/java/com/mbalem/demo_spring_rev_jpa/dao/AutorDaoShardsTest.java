@@ -0,0 +1,117 @@
+package com.mbalem.demo_spring_rev_jpa.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.mbalem.demo_spring_rev_jpa.dto.AutorResumo;
+import com.mbalem.demo_spring_rev_jpa.dto.Pagina;
+import com.mbalem.demo_spring_rev_jpa.entity.Autor;
+import com.mbalem.demo_spring_rev_jpa.entity.InfoAutor;
+import com.mbalem.demo_spring_rev_jpa.shard.Shards;
+
+// Autores divididos em três bancos H2 em memória (shard 0 e mais dois): cada
+// autor deve ficar em um só banco, no shard indicado pelo id, e as consultas
+// gerais devem juntar os resultados de todos.
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:shard0;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"autores.shards.habilitado=true",
+		"autores.shards.urls=" + AutorDaoShardsTest.SHARD_1 + "," + AutorDaoShardsTest.SHARD_2 })
+@ActiveProfiles("test")
+class AutorDaoShardsTest {
+
+	static final String SHARD_1 = "jdbc:h2:mem:shard1;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+	static final String SHARD_2 = "jdbc:h2:mem:shard2;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+	private static final List<String> URLS = List.of(
+			"jdbc:h2:mem:shard0;MODE=MySQL;DB_CLOSE_DELAY=-1", SHARD_1, SHARD_2);
+
+	@Autowired
+	private AutorDao dao;
+
+	@Autowired
+	private Shards shards;
+
+	@Test
+	void cadaAutorFicaNoBancoDoShardDoId() {
+		List<Autor> autores = gravar("Roteado", "Editor", 6);
+
+		assertThat(autores).extracting(autor -> shards.shardDe(autor.getId())).containsExactlyInAnyOrder(0, 1, 2, 0, 1, 2);
+		for (Autor autor : autores) {
+			int shard = shards.shardDe(autor.getId());
+			for (int banco = 0; banco < URLS.size(); banco++) {
+				assertThat(contar(banco, autor.getId())).isEqualTo(banco == shard ? 1 : 0);
+			}
+			assertThat(dao.findById(autor.getId()).getNome()).isEqualTo(autor.getNome());
+		}
+	}
+
+	@Test
+	void listagemPercorreOsShardsEmOrdemDeId() {
+		List<Autor> autores = gravar("Paginado", "Revisor", 7);
+
+		List<Long> lidos = new ArrayList<>();
+		Long cursor = null;
+		Pagina<AutorResumo> pagina;
+		do {
+			pagina = dao.findByAll(cursor, 2);
+			pagina.itens().forEach(resumo -> lidos.add(resumo.id()));
+			cursor = pagina.proximoCursor();
+		} while (cursor != null);
+
+		assertThat(lidos).isSorted().doesNotHaveDuplicates();
+		assertThat(lidos).containsAll(autores.stream().map(Autor::getId).toList());
+	}
+
+	@Test
+	void totalCargoEBuscaJuntamOsShards() {
+		long antes = dao.getTotalElements();
+		gravar("Juntado", "Tradutor", 5);
+
+		assertThat(dao.getTotalElements()).isEqualTo(antes + 5);
+
+		List<AutorResumo> porCargo = dao.findByCargo("tradutor");
+		assertThat(porCargo).hasSize(5);
+		assertThat(porCargo).extracting(AutorResumo::nome)
+				.containsExactly("Juntado 0", "Juntado 1", "Juntado 2", "Juntado 3", "Juntado 4");
+
+		assertThat(dao.findAllByNomeOrSobrenome("juntado")).hasSize(5);
+		assertThat(dao.deleteAllByCargo("tradutor")).isEqualTo(5);
+		assertThat(dao.getTotalElements()).isEqualTo(antes);
+	}
+
+	// Grava um autor por vez, para que o rodízio os espalhe pelos shards
+	private List<Autor> gravar(String nome, String cargo, int quantidade) {
+		List<Autor> autores = new ArrayList<>();
+		for (int i = 0; i < quantidade; i++) {
+			InfoAutor info = new InfoAutor();
+			info.setCargo(cargo);
+
+			Autor autor = new Autor();
+			autor.setNome(nome + " " + i);
+			autor.setSobrenome("Sharding");
+			autor.setInfoAutor(info);
+			dao.save(autor);
+			autores.add(autor);
+		}
+		return autores;
+	}
+
+	// Conta o autor direto no banco do shard, sem passar pela aplicação
+	private static int contar(int shard, Long id) {
+		JdbcDataSource banco = new JdbcDataSource();
+		banco.setURL(URLS.get(shard));
+		banco.setUser("sa");
+		return new JdbcTemplate(banco).queryForObject("select count(*) from autores where id_autor = ?", Integer.class, id);
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.mbalem.demo_spring_rev_jpa.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.mbalem.demo_spring_rev_jpa.config.InicializacaoContadores;
+import com.mbalem.demo_spring_rev_jpa.dto.AutorResumo;
+import com.mbalem.demo_spring_rev_jpa.entity.Autor;
+import com.mbalem.demo_spring_rev_jpa.entity.Contador;
+
+// O total de autores é a soma das faixas do contador: gravações feitas em
+// threads diferentes atualizam faixas diferentes, e a soma continua igual à
+// contagem da tabela.
+@SpringBootTest
+@ActiveProfiles("test")
+class ContadorAutoresTest {
+
+	@Autowired
+	private AutorDao dao;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private InicializacaoContadores inicializacao;
+
+	@Test
+	void gravacoesEmThreadsDiferentesUsamFaixasDiferentes() throws Exception {
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			Autor autor = new Autor();
+			autor.setNome("Contado " + i);
+			autor.setSobrenome("Faixa");
+			threads.add(Thread.ofPlatform().start(() -> dao.save(autor)));
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertThat(jdbc.queryForObject("select count(1) from contadores where nome like ?", Integer.class,
+				Contador.AUTORES + "%")).isEqualTo(Contador.FAIXAS);
+		assertThat(jdbc.queryForObject("select count(1) from contadores where nome like ? and valor <> 0",
+				Integer.class, Contador.AUTORES + "%")).isGreaterThan(1);
+		assertThat(dao.getTotalElements())
+				.isEqualTo(jdbc.queryForObject("select count(1) from autores", Long.class));
+
+		long antes = dao.getTotalElements();
+		dao.deleteAllById(dao.findByAll(null, 2).itens().stream().map(AutorResumo::id).toList());
+		assertThat(dao.getTotalElements()).isEqualTo(antes - 2);
+	}
+
+	// Uma nova inicialização com as linhas já criadas (o caso de todo
+	// reinício com o banco existente) não insere nem altera nada
+	@Test
+	void inicializacaoComContadoresExistentesNaoMudaNada() {
+		Autor autor = new Autor();
+		autor.setNome("Reinicio");
+		autor.setSobrenome("Contador");
+		dao.save(autor);
+		try {
+			List<Map<String, Object>> antes = jdbc.queryForList("select nome, valor from contadores order by nome");
+
+			inicializacao.afterSingletonsInstantiated();
+			inicializacao.afterSingletonsInstantiated();
+
+			assertThat(jdbc.queryForList("select nome, valor from contadores order by nome")).isEqualTo(antes);
+			assertThat(dao.getTotalElements())
+					.isEqualTo(jdbc.queryForObject("select count(1) from autores", Long.class));
+		} finally {
+			dao.deleteAllById(List.of(autor.getId()));
+		}
+	}
+}
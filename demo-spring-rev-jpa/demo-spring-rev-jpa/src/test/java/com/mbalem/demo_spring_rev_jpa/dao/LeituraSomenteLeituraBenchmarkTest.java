@@ -0,0 +1,132 @@
+package com.mbalem.demo_spring_rev_jpa.dao;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.hibernate.FlushMode;
+import org.hibernate.jpa.HibernateHints;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.mbalem.demo_spring_rev_jpa.dto.AutorResumo;
+import com.mbalem.demo_spring_rev_jpa.entity.Autor;
+import com.mbalem.demo_spring_rev_jpa.entity.InfoAutor;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+// Compara o custo por linha de carregar autores:
+// - como entidades gerenciadas (transação de escrita, com snapshot);
+// - como entidades somente leitura (transação readOnly + hints);
+// - como projeção AutorResumo.
+// Mede bytes alocados e tempo de CPU da thread por linha carregada.
+//
+// Não roda no build normal. Para executar:
+//   mvn test -Dtest=LeituraSomenteLeituraBenchmarkTest -Dbenchmark=true
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class LeituraSomenteLeituraBenchmarkTest {
+
+	private static final int LINHAS = 20_000;
+
+	private static final int RODADAS_AQUECIMENTO = 5;
+
+	private static final int RODADAS = 20;
+
+	private static final String CONSULTA_ENTIDADES = "select a from Autor a left join fetch a.infoAutor";
+
+	private static final String CONSULTA_RESUMOS =
+			"select new com.mbalem.demo_spring_rev_jpa.dto.AutorResumo(a.id, a.nome, a.sobrenome, i.cargo) " +
+			"from Autor a left join a.infoAutor i";
+
+	@Autowired
+	private AutorDao dao;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@PersistenceContext
+	private EntityManager manager;
+
+	@BeforeEach
+	void preparar() {
+		if (dao.getTotalElements() >= LINHAS) {
+			return;
+		}
+		List<Autor> autores = new ArrayList<>();
+		for (int i = 0; i < LINHAS; i++) {
+			InfoAutor info = new InfoAutor();
+			info.setCargo("Professor");
+			info.setBio("Bio do autor " + i);
+
+			Autor autor = new Autor();
+			autor.setNome("Nome " + i);
+			autor.setSobrenome("Sobrenome " + i);
+			autor.setInfoAutor(info);
+			autores.add(autor);
+		}
+		dao.saveAll(autores);
+	}
+
+	@Test
+	void compararLeituras() {
+		Medicao gerenciadas = medir(false, em -> em.createQuery(CONSULTA_ENTIDADES, Autor.class)
+				.getResultList().size());
+
+		Medicao somenteLeitura = medir(true, em -> em.createQuery(CONSULTA_ENTIDADES, Autor.class)
+				.setHint(HibernateHints.HINT_READ_ONLY, true)
+				.setHint(HibernateHints.HINT_FLUSH_MODE, FlushMode.MANUAL)
+				.getResultList().size());
+
+		Medicao resumos = medir(true, em -> em.createQuery(CONSULTA_RESUMOS, AutorResumo.class)
+				.getResultList().size());
+
+		System.out.printf("%n%-28s %14s %14s%n", "Leitura (" + LINHAS + " linhas)", "bytes/linha", "ns CPU/linha");
+		imprimir("entidades gerenciadas", gerenciadas);
+		imprimir("entidades somente leitura", somenteLeitura);
+		imprimir("projecao AutorResumo", resumos);
+	}
+
+	private record Medicao(double bytesPorLinha, double cpuPorLinha) {
+	}
+
+	// Executa a leitura em uma transação (readOnly ou não), inclusive o
+	// commit, que é onde o dirty checking das entidades gerenciadas acontece
+	private Medicao medir(boolean readOnly, Function<EntityManager, Integer> leitura) {
+		TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+		transacao.setReadOnly(readOnly);
+
+		for (int i = 0; i < RODADAS_AQUECIMENTO; i++) {
+			transacao.execute(status -> leitura.apply(manager));
+		}
+
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().threadId();
+
+		long linhas = 0;
+		long bytesAntes = threads.getThreadAllocatedBytes(threadId);
+		long cpuAntes = threads.getCurrentThreadCpuTime();
+		for (int i = 0; i < RODADAS; i++) {
+			linhas += transacao.execute(status -> leitura.apply(manager));
+		}
+		long bytes = threads.getThreadAllocatedBytes(threadId) - bytesAntes;
+		long cpu = threads.getCurrentThreadCpuTime() - cpuAntes;
+
+		return new Medicao((double) bytes / linhas, (double) cpu / linhas);
+	}
+
+	private static void imprimir(String nome, Medicao medicao) {
+		System.out.printf("%-28s %14.0f %14.0f%n", nome, medicao.bytesPorLinha(), medicao.cpuPorLinha());
+	}
+
+}
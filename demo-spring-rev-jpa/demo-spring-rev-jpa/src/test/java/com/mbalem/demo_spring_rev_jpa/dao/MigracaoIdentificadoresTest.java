@@ -0,0 +1,66 @@
+package com.mbalem.demo_spring_rev_jpa.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.mbalem.demo_spring_rev_jpa.config.MigracaoIdentificadores;
+
+// A migração avança a sequência dos geradores para depois do maior id já
+// gravado (linhas de antes, do auto_increment), deixando a reserva para as
+// instâncias antigas quando cria a sequência, e pode rodar de novo sem mudar
+// nada nem fazer a sequência voltar.
+@SpringBootTest
+@ActiveProfiles("test")
+class MigracaoIdentificadoresTest {
+
+	@Autowired
+	private MigracaoIdentificadores migracao;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Test
+	void sequenciaPassaDoMaiorIdEARepeticaoNaoMudaNada() {
+		// Linha gravada "pelo auto_increment", além de todos os blocos já reservados
+		long alto = proximoValor("autores") + 1_000_000;
+		jdbc.update("insert into autores (id_autor, nome, sobrenome, versao) values (?, 'Migrado', 'Identity', 0)", alto);
+		try {
+			long info = proximoValor("info_autores");
+
+			migracao.afterSingletonsInstantiated();
+			assertThat(proximoValor("autores")).isEqualTo(alto + 1);
+			assertThat(proximoValor("info_autores")).isEqualTo(info);
+
+			migracao.afterSingletonsInstantiated();
+			assertThat(proximoValor("autores")).isEqualTo(alto + 1);
+		} finally {
+			jdbc.update("delete from autores where id_autor = ?", alto);
+		}
+
+		// Sem a linha, a sequência não volta
+		migracao.afterSingletonsInstantiated();
+		assertThat(proximoValor("autores")).isEqualTo(alto + 1);
+	}
+
+	// Sequência ainda não criada (primeira instância nova): começa depois da
+	// reserva para as instâncias antigas, que ainda usam auto_increment
+	@Test
+	void sequenciaNovaComecaDepoisDaReserva() {
+		jdbc.update("delete from id_geradores where nome_sequencia = 'info_autores'");
+		long maior = jdbc.queryForObject("select coalesce(max(id_info), 0) from info_autores", Long.class);
+
+		migracao.afterSingletonsInstantiated();
+
+		assertThat(proximoValor("info_autores")).isEqualTo(maior + 1 + 1_000_000);
+	}
+
+	private long proximoValor(String sequencia) {
+		return jdbc.queryForObject("select proximo_valor from id_geradores where nome_sequencia = ?", Long.class,
+				sequencia);
+	}
+}
@@ -0,0 +1,154 @@
+package com.mbalem.demo_spring_rev_jpa.ingestao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.mbalem.demo_spring_rev_jpa.config.ConsistenciaLeitura;
+import com.mbalem.demo_spring_rev_jpa.dao.AutorDao;
+import com.mbalem.demo_spring_rev_jpa.entity.Autor;
+
+// A gravadora junta os pedidos em lotes (até "lote-maximo", esperando no
+// máximo "espera-maxima"), regrava um a um quando o lote falha e esvazia a
+// fila no desligamento. O AutorDao é substituído por um que só registra os
+// lotes.
+class FilaIngestaoTest {
+
+	private static final String INVALIDO = "Invalido";
+
+	private final DaoFalso dao = new DaoFalso();
+
+	private FilaIngestao fila;
+
+	@AfterEach
+	void parar() {
+		if (fila != null && fila.isRunning()) {
+			fila.stop();
+		}
+	}
+
+	@Test
+	void pedidosQueChegamJuntosVaoNoMesmoLote() throws Exception {
+		fila = iniciar(500, Duration.ofMillis(500));
+
+		List<String> rastreios = enfileirar("A", "B", "C", "D", "E");
+		aguardarGravacao(rastreios);
+
+		assertThat(dao.lotes).containsExactly(5);
+		assertThat(rastreios).allSatisfy(rastreio -> assertThat(fila.situacao(rastreio).id()).isNotNull());
+	}
+
+	@Test
+	void loteRespeitaOTamanhoMaximo() throws Exception {
+		fila = iniciar(3, Duration.ofMillis(200));
+
+		aguardarGravacao(enfileirar("A", "B", "C", "D", "E", "F", "G"));
+
+		assertThat(dao.lotes).allSatisfy(tamanho -> assertThat(tamanho).isLessThanOrEqualTo(3));
+		assertThat(dao.lotes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(7);
+	}
+
+	@Test
+	void pedidoSozinhoEsperaNoMaximoAEsperaMaxima() throws Exception {
+		fila = iniciar(500, Duration.ofMillis(50));
+
+		long inicio = System.nanoTime();
+		aguardarGravacao(enfileirar("A"));
+
+		assertThat(Duration.ofNanos(System.nanoTime() - inicio)).isLessThan(Duration.ofSeconds(2));
+		assertThat(dao.lotes).containsExactly(1);
+	}
+
+	@Test
+	void loteQueFalhaEGravadoUmAUm() throws Exception {
+		fila = iniciar(500, Duration.ofMillis(200));
+
+		List<String> rastreios = enfileirar("A", INVALIDO, "B");
+		aguardarGravacao(rastreios);
+
+		assertThat(fila.situacao(rastreios.get(0)).estado()).isEqualTo(StatusIngestao.Estado.GRAVADO);
+		assertThat(fila.situacao(rastreios.get(1)).estado()).isEqualTo(StatusIngestao.Estado.FALHOU);
+		assertThat(fila.situacao(rastreios.get(2)).estado()).isEqualTo(StatusIngestao.Estado.GRAVADO);
+		assertThat(dao.individuais).hasValue(3);
+	}
+
+	@Test
+	void desligamentoGravaOQueEstaNaFila() {
+		fila = iniciar(500, Duration.ofMillis(100));
+
+		List<String> rastreios = enfileirar("A", "B", "C");
+		fila.stop();
+
+		assertThat(rastreios).allSatisfy(
+				rastreio -> assertThat(fila.situacao(rastreio).estado()).isEqualTo(StatusIngestao.Estado.GRAVADO));
+		assertThat(fila.enfileirar(autor("D"))).isNull();
+	}
+
+	private FilaIngestao iniciar(int loteMaximo, Duration esperaMaxima) {
+		FilaIngestao nova = new FilaIngestao(dao, new ConsistenciaLeitura(), 100, loteMaximo, esperaMaxima,
+				Duration.ofMinutes(1), 1000);
+		nova.start();
+		return nova;
+	}
+
+	private List<String> enfileirar(String... nomes) {
+		List<String> rastreios = new ArrayList<>();
+		for (String nome : nomes) {
+			rastreios.add(fila.enfileirar(autor(nome)));
+		}
+		return rastreios;
+	}
+
+	private void aguardarGravacao(List<String> rastreios) throws InterruptedException {
+		long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (rastreios.stream()
+				.anyMatch(rastreio -> fila.situacao(rastreio).estado() == StatusIngestao.Estado.PENDENTE)) {
+			assertThat(System.nanoTime()).isLessThan(limite);
+			TimeUnit.MILLISECONDS.sleep(5);
+		}
+	}
+
+	private static Autor autor(String nome) {
+		Autor autor = new Autor();
+		autor.setNome(nome);
+		autor.setSobrenome("Sobrenome");
+		return autor;
+	}
+
+	// Falha o lote inteiro (e o autor sozinho) quando há um autor INVALIDO
+	static class DaoFalso extends AutorDao {
+
+		final List<Integer> lotes = new CopyOnWriteArrayList<>();
+
+		final AtomicLong individuais = new AtomicLong();
+
+		private final AtomicLong ids = new AtomicLong();
+
+		@Override
+		public void saveAll(List<Autor> autores) {
+			if (autores.stream().anyMatch(autor -> INVALIDO.equals(autor.getNome()))) {
+				autores.forEach(autor -> autor.setId(ids.incrementAndGet()));
+				throw new IllegalStateException("Lote com autor invalido");
+			}
+			autores.forEach(autor -> autor.setId(ids.incrementAndGet()));
+			lotes.add(autores.size());
+		}
+
+		@Override
+		public void save(Autor autor) {
+			individuais.incrementAndGet();
+			if (INVALIDO.equals(autor.getNome())) {
+				throw new IllegalStateException("Autor invalido");
+			}
+			autor.setId(ids.incrementAndGet());
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.mbalem.demo_spring_rev_jpa.metricas;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+
+// Mede uma classe de exemplo pelo mesmo interceptor aplicado a AutorDao e
+// AutorController.
+class MetricasMetodosTest {
+
+	@Test
+	void registraChamadasErrosLinhasELatencia() {
+		MetricasMetodos metricas = new MetricasMetodos(Duration.ofSeconds(60), Exemplo.class);
+		Exemplo exemplo = medir(new Exemplo(), metricas);
+
+		exemplo.listar(3);
+		exemplo.listar(2);
+		assertThatThrownBy(exemplo::falhar).isInstanceOf(IllegalStateException.class);
+
+		MetricaMetodo.Resumo listar = resumo(metricas, "Exemplo.listar");
+		assertThat(listar.chamadas()).isEqualTo(2);
+		assertThat(listar.erros()).isZero();
+		assertThat(listar.linhas()).isEqualTo(5);
+		assertThat(listar.maximoMs()).isGreaterThanOrEqualTo(listar.p50Ms()).isPositive();
+
+		MetricaMetodo.Resumo falhar = resumo(metricas, "Exemplo.falhar");
+		assertThat(falhar.chamadas()).isEqualTo(1);
+		assertThat(falhar.erros()).isEqualTo(1);
+
+		metricas.zerar();
+		assertThat(resumo(metricas, "Exemplo.listar").chamadas()).isZero();
+		assertThat(resumo(metricas, "Exemplo.listar").maximoMs()).isZero();
+	}
+
+	private static Exemplo medir(Exemplo alvo, MetricasMetodos metricas) {
+		ProxyFactory fabrica = new ProxyFactory(alvo);
+		fabrica.setProxyTargetClass(true);
+		fabrica.addAdvice(metricas);
+		return (Exemplo) fabrica.getProxy();
+	}
+
+	private static MetricaMetodo.Resumo resumo(MetricasMetodos metricas, String metodo) {
+		return metricas.resumir().stream().filter(resumo -> resumo.metodo().equals(metodo)).findFirst().orElseThrow();
+	}
+
+	public static class Exemplo {
+
+		public List<Integer> listar(int quantidade) {
+			try {
+				Thread.sleep(2);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return IntStream.range(0, quantidade).boxed().toList();
+		}
+
+		public void falhar() {
+			throw new IllegalStateException("falha");
+		}
+	}
+}
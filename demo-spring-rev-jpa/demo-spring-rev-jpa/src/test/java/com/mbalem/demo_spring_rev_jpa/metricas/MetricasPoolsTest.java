@@ -0,0 +1,88 @@
+package com.mbalem.demo_spring_rev_jpa.metricas;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.junit.jupiter.api.Test;
+
+// Pool do Hikari em um H2 em memória instrumentado por MetricasPools: a posse
+// das conexões vai para o UsoConexoes da thread e para as métricas do pool.
+class MetricasPoolsTest {
+
+	@Test
+	void registraAquisicaoEPosseDasConexoes() throws Exception {
+		MetricasPools metricas = new MetricasPools(Duration.ofSeconds(60));
+		try (HikariDataSource pool = new HikariDataSource()) {
+			pool.setJdbcUrl("jdbc:h2:mem:metricas_pools");
+			pool.setPoolName("teste");
+			pool.setMaximumPoolSize(2);
+			metricas.instrumentar(pool);
+
+			UsoConexoes uso = UsoConexoes.iniciar();
+			try (Connection conexao = pool.getConnection()) {
+				TimeUnit.MILLISECONDS.sleep(20);
+			}
+			// Ainda aberta ao encerrar: conta até o encerramento
+			Connection aberta = pool.getConnection();
+			TimeUnit.MILLISECONDS.sleep(10);
+			uso.encerrar();
+			aberta.close();
+
+			assertThat(uso.conexoes()).isEqualTo(2);
+			assertThat(uso.posseNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(30));
+
+			MetricasPools.Pool.Resumo resumo = metricas.resumir().get(0);
+			assertThat(resumo.pool()).isEqualTo("teste");
+			assertThat(resumo.maximo()).isEqualTo(2);
+			assertThat(resumo.ativas()).isZero();
+			assertThat(resumo.aquisicao().quantidade()).isEqualTo(2);
+			assertThat(resumo.uso().quantidade()).isEqualTo(2);
+			assertThat(resumo.uso().maximoMs()).isGreaterThanOrEqualTo(19);
+
+			metricas.zerar();
+			assertThat(metricas.resumir().get(0).uso().quantidade()).isZero();
+		}
+	}
+
+	@Test
+	void conexoesDeOutraThreadVinculadaContamParaARequisicao() throws Exception {
+		MetricasPools metricas = new MetricasPools(Duration.ofSeconds(60));
+		try (HikariDataSource pool = new HikariDataSource()) {
+			pool.setJdbcUrl("jdbc:h2:mem:metricas_pools_vinculo");
+			pool.setPoolName("vinculo");
+			pool.setMaximumPoolSize(2);
+			metricas.instrumentar(pool);
+
+			UsoConexoes uso = UsoConexoes.iniciar();
+			UsoConexoes capturado = UsoConexoes.atual();
+			Thread vinculada = Thread.ofPlatform().start(() -> {
+				try (UsoConexoes.Vinculo vinculo = UsoConexoes.vincular(capturado);
+						Connection conexao = pool.getConnection()) {
+					TimeUnit.MILLISECONDS.sleep(20);
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			// Sem vínculo: não conta
+			Thread solta = Thread.ofPlatform().start(() -> {
+				try (Connection conexao = pool.getConnection()) {
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			vinculada.join();
+			solta.join();
+			uso.encerrar();
+
+			assertThat(capturado).isSameAs(uso);
+			assertThat(UsoConexoes.atual()).isNull();
+			assertThat(uso.conexoes()).isEqualTo(1);
+			assertThat(uso.posseNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+		}
+	}
+}